@@ -46,10 +46,8 @@ public class PeopleAdapter extends RecyclerView.Adapter<PersonViewHolder> {
 
     @Override
     public void onBindViewHolder(PersonViewHolder holder, int position) {
-        if (holder.getItemViewType() == PERSON) {
-            Person person = people.get(position);
-            holder.bindPerson(person);
-        }
+        Person person = people.get(position);
+        holder.bindPerson(person);
     }
 
     @Override
@@ -47,10 +47,8 @@ public class TextMessagesAdapter extends RecyclerView.Adapter<TextMessageViewHol
 
     @Override
     public void onBindViewHolder(TextMessageViewHolder holder, int position) {
-        if (holder.getItemViewType() == TEXT_MESSAGE) {
-            TextMessage textMessage = textMessages.get(position);
-            holder.bind(textMessage);
-        }
+        TextMessage textMessage = textMessages.get(position);
+        holder.bind(textMessage);
     }
 
     @Override
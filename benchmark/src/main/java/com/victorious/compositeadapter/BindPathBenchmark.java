@@ -0,0 +1,109 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The composite's own share of a bind: resolving the position, mapping the child's view type to
+ * the composite's view type (with and without {@link ViewTypeCache}) and namespacing the item id.
+ * The child's own bind is left out, it is the same with or without the composite.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindPathBenchmark {
+
+    private static final int VIEW_TYPES_PER_CHILD = 3;
+
+    @Param({"2", "10", "40", "80", "200", "500"})
+    public int childCount;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int itemCount;
+
+    private OffsetIndex offsetIndex;
+    private ViewTypeTable<Object> viewTypeTable;
+    private ViewTypeCache viewTypeCache;
+    private Object[] owners;
+    private int[] positions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Fixtures.SEED);
+        offsetIndex = Fixtures.indexOf(Fixtures.splitItems(childCount, itemCount, random));
+        viewTypeTable = new ViewTypeTable<>();
+        viewTypeCache = new ViewTypeCache(itemCount);
+        owners = new Object[childCount];
+        for (int i = 0; i < childCount; i++) {
+            owners[i] = new Object();
+        }
+        positions = Fixtures.randomPositions(itemCount, random);
+    }
+
+    @Benchmark
+    public long bind() {
+        int position = nextPosition();
+        return bind(position, getItemViewType(position));
+    }
+
+    @Benchmark
+    public long bindWithViewTypeCache() {
+        int position = nextPosition();
+        int viewType = viewTypeCache.get(position);
+        if (viewType == ViewTypeCache.UNKNOWN) {
+            viewType = getItemViewType(position);
+            viewTypeCache.put(position, viewType);
+        }
+        return bind(position, viewType);
+    }
+
+    private int getItemViewType(int position) {
+        long resolved = offsetIndex.resolve(position);
+        int childIndex = OffsetIndex.childIndexOf(resolved);
+        int localType = OffsetIndex.relativePositionOf(resolved) % VIEW_TYPES_PER_CHILD;
+        return viewTypeTable.getGlobalType(childIndex, owners[childIndex], localType);
+    }
+
+    private long bind(int position, int viewType) {
+        long resolved = offsetIndex.resolve(position);
+        int childIndex = OffsetIndex.childIndexOf(resolved);
+        long itemId = StableIds.combine(childIndex, OffsetIndex.relativePositionOf(resolved));
+        return itemId + viewTypeTable.getLocalType(viewType);
+    }
+
+    private int nextPosition() {
+        return positions[next++ & (Fixtures.POSITION_COUNT - 1)];
+    }
+}
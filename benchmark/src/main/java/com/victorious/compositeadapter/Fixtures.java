@@ -0,0 +1,77 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.Random;
+
+/**
+ * Builds the composite layouts shared by the benchmarks.
+ */
+final class Fixtures {
+
+    static final long SEED = 42;
+    // Number of precomputed positions per benchmark state; a power of two so it can be masked.
+    static final int POSITION_COUNT = 1 << 14;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Split itemCount items between childCount children at random, so children differ in size as
+     * they do in a real feed. Some children may be empty when there are fewer items than children.
+     */
+    static int[] splitItems(int childCount, int itemCount, Random random) {
+        int[] counts = new int[childCount];
+        for (int i = 0; i < itemCount % childCount; i++) {
+            counts[random.nextInt(childCount)]++;
+        }
+        int share = itemCount / childCount;
+        for (int i = 0; i < childCount; i++) {
+            int delta = share > 1 ? random.nextInt(share) - share / 2 : 0;
+            counts[i] += share + delta;
+            counts[(i + 1) % childCount] -= delta;
+        }
+        return counts;
+    }
+
+    static OffsetIndex indexOf(int[] counts) {
+        OffsetIndex index = new OffsetIndex();
+        for (int count : counts) {
+            index.add(count);
+        }
+        return index;
+    }
+
+    /**
+     * Positions in list order, wrapping around at the end, as bound while scrolling.
+     */
+    static int[] sequentialPositions(int itemCount) {
+        int[] positions = new int[POSITION_COUNT];
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            positions[i] = i % itemCount;
+        }
+        return positions;
+    }
+
+    static int[] randomPositions(int itemCount, Random random) {
+        int[] positions = new int[POSITION_COUNT];
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            positions[i] = random.nextInt(itemCount);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Position to (child, relative position) resolution: {@link OffsetIndex} against the linear walk
+ * over every child's item count which CompositeAdapter originally used, for positions in random
+ * order and in list order as bound while scrolling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({"2", "10", "40", "80", "200", "500"})
+    public int childCount;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int itemCount;
+
+    @Param({"random", "sequential"})
+    public String access;
+
+    private int[] counts;
+    private OffsetIndex offsetIndex;
+    private int[] positions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Fixtures.SEED);
+        counts = Fixtures.splitItems(childCount, itemCount, random);
+        offsetIndex = Fixtures.indexOf(counts);
+        positions = "sequential".equals(access) ? Fixtures.sequentialPositions(itemCount) : Fixtures.randomPositions(itemCount, random);
+    }
+
+    @Benchmark
+    public long offsetIndex() {
+        return offsetIndex.resolve(nextPosition());
+    }
+
+    @Benchmark
+    public long linearWalk() {
+        int position = nextPosition();
+        for (int i = 0; i < counts.length; i++) {
+            if (position < counts[i]) return ((long) i << 32) | position;
+            position -= counts[i];
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    private int nextPosition() {
+        return positions[next++ & (Fixtures.POSITION_COUNT - 1)];
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translation of a mixed stream of child notifications into composite notifications. Every
+ * invocation replays one round against a random child: an insert, a change over the inserted
+ * items, a move and the removal of the inserted items, which leaves the counts as they were so
+ * the state does not drift between invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateStreamBenchmark {
+
+    private static final int ROUND_COUNT = 1 << 12;
+    private static final int MAX_INSERTED = 8;
+
+    @Param({"2", "10", "40", "80", "200", "500"})
+    public int childCount;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int itemCount;
+
+    @Param({"false", "true"})
+    public boolean batched;
+
+    @Param({"false", "true"})
+    public boolean viewTypeCache;
+
+    private UpdateTranslator updateTranslator;
+    private CountingCallback callback;
+    // Per round: child index, relative position, inserted count.
+    private int[] rounds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Fixtures.SEED);
+        OffsetIndex offsetIndex = Fixtures.indexOf(Fixtures.splitItems(childCount, itemCount, random));
+        callback = new CountingCallback();
+        updateTranslator = new UpdateTranslator(offsetIndex, callback);
+        if (viewTypeCache) {
+            updateTranslator.setViewTypeCache(new ViewTypeCache(itemCount));
+        }
+        rounds = new int[ROUND_COUNT * 3];
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            int childIndex = random.nextInt(childCount);
+            rounds[i * 3] = childIndex;
+            rounds[i * 3 + 1] = random.nextInt(offsetIndex.getCount(childIndex) + 1);
+            rounds[i * 3 + 2] = 1 + random.nextInt(MAX_INSERTED);
+        }
+    }
+
+    @Benchmark
+    public long mixedUpdates() {
+        int round = (next++ & (ROUND_COUNT - 1)) * 3;
+        int childIndex = rounds[round];
+        int position = rounds[round + 1];
+        int inserted = rounds[round + 2];
+        if (batched) {
+            updateTranslator.beginTransaction();
+        }
+        updateTranslator.onChildItemRangeInserted(childIndex, position, inserted);
+        updateTranslator.onChildItemRangeChanged(childIndex, position, inserted, null);
+        updateTranslator.onChildItemRangeMoved(childIndex, position, position + inserted - 1, 1);
+        updateTranslator.onChildItemRangeRemoved(childIndex, position, inserted);
+        if (batched) {
+            updateTranslator.commitTransaction();
+        }
+        return callback.events;
+    }
+
+    private static final class CountingCallback implements UpdateBatch.Callback {
+
+        private long events;
+
+        @Override
+        public void onDataSetChanged() {
+            events++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            events++;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events++;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events++;
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            events++;
+        }
+
+        @Override
+        public void onStructureChanged() {
+            events++;
+        }
+    }
+}
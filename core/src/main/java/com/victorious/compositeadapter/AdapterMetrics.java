@@ -0,0 +1,138 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * AdapterMetrics is a {@link MetricsListener} which aggregates the operations of a CompositeAdapter
+ * into one {@link LatencyHistogram} per operation, plus operation counts and total durations per
+ * child and per view type, so a slow section of the list can be traced back to its adapter.
+ * <p/>
+ * Usage: pass an instance to CompositeAdapter.setMetricsListener() and read or export it from any
+ * thread, e.g. after a scripted scroll in a CI run. Map children to their ids with
+ * CompositeAdapter.getChildId().
+ * <p/>
+ * All storage is allocated up front for {@code maxChildren} child ids and {@code maxViewTypes} view
+ * types; operations of children or view types beyond those only reach the histograms. Recording
+ * only uses atomic increments, so it never allocates or locks.
+ */
+public class AdapterMetrics implements MetricsListener {
+
+    public static final int DEFAULT_MAX_CHILDREN = 64;
+    public static final int DEFAULT_MAX_VIEW_TYPES = 128;
+
+    private final LatencyHistogram[] histograms;
+    private final int maxChildren;
+    private final int maxViewTypes;
+    // Indexed by operation * maxChildren + childId, resp. operation * maxViewTypes + viewType.
+    private final AtomicLongArray childCounts;
+    private final AtomicLongArray childNanos;
+    private final AtomicLongArray viewTypeCounts;
+    private final AtomicLongArray viewTypeNanos;
+
+    public AdapterMetrics() {
+        this(DEFAULT_MAX_CHILDREN, DEFAULT_MAX_VIEW_TYPES);
+    }
+
+    /**
+     * @param maxChildren  number of child ids tracked individually.
+     * @param maxViewTypes number of view types tracked individually.
+     */
+    public AdapterMetrics(int maxChildren, int maxViewTypes) {
+        if (maxChildren < 0 || maxViewTypes < 0) {
+            throw new IllegalArgumentException("Invalid metrics capacity.");
+        }
+        this.maxChildren = maxChildren;
+        this.maxViewTypes = maxViewTypes;
+        histograms = new LatencyHistogram[OPERATION_COUNT];
+        for (int operation = 0; operation < OPERATION_COUNT; operation++) {
+            histograms[operation] = new LatencyHistogram();
+        }
+        childCounts = new AtomicLongArray(OPERATION_COUNT * maxChildren);
+        childNanos = new AtomicLongArray(OPERATION_COUNT * maxChildren);
+        viewTypeCounts = new AtomicLongArray(OPERATION_COUNT * maxViewTypes);
+        viewTypeNanos = new AtomicLongArray(OPERATION_COUNT * maxViewTypes);
+    }
+
+    @Override
+    public void onOperation(int operation, int childId, int viewType, long durationNanos) {
+        histograms[operation].record(durationNanos);
+        if (childId >= 0 && childId < maxChildren) {
+            int slot = operation * maxChildren + childId;
+            childCounts.incrementAndGet(slot);
+            childNanos.addAndGet(slot, durationNanos);
+        }
+        if (viewType >= 0 && viewType < maxViewTypes) {
+            int slot = operation * maxViewTypes + viewType;
+            viewTypeCounts.incrementAndGet(slot);
+            viewTypeNanos.addAndGet(slot, durationNanos);
+        }
+    }
+
+    /**
+     * @param operation one of the OPERATION_* constants.
+     * @return durations of every recorded operation of that kind.
+     */
+    public LatencyHistogram getHistogram(int operation) {
+        return histograms[operation];
+    }
+
+    /**
+     * @return number of operations of that kind handled by the child, or 0 if it is not tracked.
+     */
+    public long getChildCount(int operation, int childId) {
+        return childId >= 0 && childId < maxChildren ? childCounts.get(operation * maxChildren + childId) : 0;
+    }
+
+    /**
+     * @return time spent in operations of that kind by the child, in nanoseconds.
+     */
+    public long getChildTotalNanos(int operation, int childId) {
+        return childId >= 0 && childId < maxChildren ? childNanos.get(operation * maxChildren + childId) : 0;
+    }
+
+    /**
+     * @return number of operations of that kind for the view type, or 0 if it is not tracked.
+     */
+    public long getViewTypeCount(int operation, int viewType) {
+        return viewType >= 0 && viewType < maxViewTypes ? viewTypeCounts.get(operation * maxViewTypes + viewType) : 0;
+    }
+
+    /**
+     * @return time spent in operations of that kind for the view type, in nanoseconds.
+     */
+    public long getViewTypeTotalNanos(int operation, int viewType) {
+        return viewType >= 0 && viewType < maxViewTypes ? viewTypeNanos.get(operation * maxViewTypes + viewType) : 0;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        clear(childCounts);
+        clear(childNanos);
+        clear(viewTypeCounts);
+        clear(viewTypeNanos);
+    }
+
+    private static void clear(AtomicLongArray array) {
+        for (int i = 0; i < array.length(); i++) {
+            array.set(i, 0);
+        }
+    }
+}
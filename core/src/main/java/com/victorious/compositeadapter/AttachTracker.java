@@ -0,0 +1,156 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AttachTracker keeps track of the RecyclerViews a composite is attached to and decides when its
+ * children are attached, detached, observed and refreshed.
+ * <p/>
+ * Children are only observed while the composite is attached to at least one RecyclerView, so a
+ * detached composite does not keep its children busy, nor is it kept reachable by them. Attach is
+ * forwarded to the children before they are observed again: nested composites refresh their own
+ * counts on attach, and those counts are only read afterwards, in
+ * {@link Callback#onChildRefreshed(int, Object)}.
+ *
+ * @param <ViewType>  type of the RecyclerView.
+ * @param <ChildType> type of the owner's child records.
+ */
+final class AttachTracker<ViewType, ChildType> {
+
+    interface Callback<ViewType, ChildType> {
+
+        void onChildAttached(ChildType child, ViewType view);
+
+        void onChildDetached(ChildType child, ViewType view);
+
+        void startObserving(ChildType child);
+
+        void stopObserving(ChildType child);
+
+        /**
+         * The child is observed again; changes it made while it was not observed must be picked
+         * up here.
+         */
+        void onChildRefreshed(int index, ChildType child);
+
+        int getItemCount(ChildType child);
+    }
+
+    private final List<ChildType> children;
+    private final Callback<ViewType, ChildType> callback;
+    private final List<ViewType> views;
+
+    /**
+     * @param children the owner's children, which the owner keeps up to date.
+     */
+    AttachTracker(List<ChildType> children, Callback<ViewType, ChildType> callback) {
+        this.children = children;
+        this.callback = callback;
+        views = new ArrayList<>();
+    }
+
+    /**
+     * @return whether the composite is attached to a RecyclerView, and its children observed.
+     */
+    boolean isAttached() {
+        return !views.isEmpty();
+    }
+
+    /**
+     * Check that each child still has the item count last reported through its notifications.
+     * Skipped while detached: the children are not observed then, and their changes are only
+     * picked up on attach.
+     *
+     * @param offsetIndex the owner's index of its children.
+     * @throws IllegalStateException naming the first child whose count differs.
+     */
+    void verifyItemCounts(OffsetIndex offsetIndex) {
+        if (views.isEmpty()) return;
+        for (int i = 0, size = children.size(); i < size; i++) {
+            ChildType child = children.get(i);
+            int itemCount = callback.getItemCount(child);
+            if (itemCount != offsetIndex.getCount(i)) {
+                throw new IllegalStateException("Child adapter " + child + " at index " + i + " has " + itemCount
+                        + " items but last notified " + offsetIndex.getCount(i) + "; notify every change to its data.");
+            }
+        }
+    }
+
+    /**
+     * Forward the attach to the children, then observe and refresh them if this is the first
+     * RecyclerView.
+     *
+     * @return whether the children started being observed.
+     */
+    boolean onAttached(ViewType view) {
+        views.add(view);
+        for (int i = 0, size = children.size(); i < size; i++) {
+            callback.onChildAttached(children.get(i), view);
+        }
+        if (views.size() > 1) return false;
+        for (int i = 0, size = children.size(); i < size; i++) {
+            ChildType child = children.get(i);
+            callback.startObserving(child);
+            callback.onChildRefreshed(i, child);
+        }
+        return true;
+    }
+
+    /**
+     * Forward the detach to the children, then stop observing them if no RecyclerView is left.
+     *
+     * @return whether the children stopped being observed.
+     */
+    boolean onDetached(ViewType view) {
+        if (!views.remove(view)) return false;
+        for (int i = 0, size = children.size(); i < size; i++) {
+            callback.onChildDetached(children.get(i), view);
+        }
+        if (!views.isEmpty()) return false;
+        for (int i = 0, size = children.size(); i < size; i++) {
+            callback.stopObserving(children.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * Attach and observe a child about to be added, so its count can be read right after.
+     */
+    void onChildAdded(ChildType child) {
+        for (int i = 0, size = views.size(); i < size; i++) {
+            callback.onChildAttached(child, views.get(i));
+        }
+        if (!views.isEmpty()) {
+            callback.startObserving(child);
+        }
+    }
+
+    /**
+     * Stop observing and detach a child which has been removed.
+     */
+    void onChildRemoved(ChildType child) {
+        if (!views.isEmpty()) {
+            callback.stopObserving(child);
+        }
+        for (int i = 0, size = views.size(); i < size; i++) {
+            callback.onChildDetached(child, views.get(i));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts durations in power of two buckets: bucket 0 holds durations below 2ns
+ * and bucket i durations in [2^i, 2^(i+1)) nanoseconds, with the last bucket absorbing everything
+ * longer.
+ * <p/>
+ * The buckets are allocated up front and updated with atomic increments, so recording never
+ * allocates or locks and the histogram may be read from another thread (e.g. to export it) while
+ * the main thread records into it. A reading taken during recording may be off by the durations
+ * recorded meanwhile.
+ */
+public final class LatencyHistogram {
+
+    public static final int BUCKET_COUNT = 40;
+
+    // Buckets followed by the total count and the total duration.
+    private static final int COUNT_SLOT = BUCKET_COUNT;
+    private static final int TOTAL_NANOS_SLOT = BUCKET_COUNT + 1;
+
+    private final AtomicLongArray slots;
+
+    public LatencyHistogram() {
+        slots = new AtomicLongArray(BUCKET_COUNT + 2);
+    }
+
+    /**
+     * @param durationNanos duration to count; negative durations count as 0.
+     */
+    public void record(long durationNanos) {
+        long duration = Math.max(0, durationNanos);
+        slots.incrementAndGet(bucketOf(duration));
+        slots.incrementAndGet(COUNT_SLOT);
+        slots.addAndGet(TOTAL_NANOS_SLOT, duration);
+    }
+
+    /**
+     * @return number of durations recorded.
+     */
+    public long getCount() {
+        return slots.get(COUNT_SLOT);
+    }
+
+    /**
+     * @return sum of the durations recorded, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return slots.get(TOTAL_NANOS_SLOT);
+    }
+
+    /**
+     * @return number of durations recorded in the bucket.
+     */
+    public long getBucketCount(int bucket) {
+        return slots.get(bucket);
+    }
+
+    /**
+     * @return exclusive upper bound of the bucket in nanoseconds, or Long.MAX_VALUE for the last.
+     */
+    public static long getBucketUpperBoundNanos(int bucket) {
+        if (bucket < 0 || bucket >= BUCKET_COUNT) {
+            throw new IndexOutOfBoundsException("No bucket " + bucket);
+        }
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (bucket + 1);
+    }
+
+    /**
+     * @param percentile value in [0, 100].
+     * @return upper bound of the bucket holding the percentile, or 0 when nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile " + percentile + " out of range.");
+        }
+        long count = getCount();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += slots.get(bucket);
+            if (seen >= rank) return getBucketUpperBoundNanos(bucket);
+        }
+        return getBucketUpperBoundNanos(BUCKET_COUNT - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0);
+        }
+    }
+
+    private static int bucketOf(long durationNanos) {
+        int bucket = 63 - Long.numberOfLeadingZeros(durationNanos);
+        return Math.max(0, Math.min(BUCKET_COUNT - 1, bucket));
+    }
+}
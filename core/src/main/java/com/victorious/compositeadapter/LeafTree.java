@@ -0,0 +1,253 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * LeafTree flattens a composite whose children may themselves be composites into one list of leaf
+ * children with one {@link OffsetIndex}, so positions resolve with a single lookup whatever the
+ * nesting depth.
+ * <p/>
+ * The tree mirrors the composite's direct children: the owner keeps the children list and their
+ * offset index, and reports every structural change ({@link #insert(int, LeafTree)},
+ * {@link #remove(int)}, {@link #move(int, int)}) and every change of a child
+ * ({@link #onChildChanged(int, boolean)}). Nothing is recomputed until {@link #sync()}. The leaf
+ * list is only rebuilt when leaves were added, removed or reordered, anywhere in the tree; count
+ * and slot changes are copied into the leaf index in place, and changes which keep every count do
+ * not touch it at all.
+ * <p/>
+ * While no child is nested the direct children are the leaves, and the tree hands out the owner's
+ * own list and index.
+ *
+ * @param <LeafType> type of the owner's child records.
+ */
+final class LeafTree<LeafType> {
+
+    /**
+     * Creates and releases the owner's records for the leaves of nested trees.
+     */
+    interface LeafFactory<LeafType> {
+
+        /**
+         * @param nestedLeaf leaf of a nested tree which just became a leaf of this tree.
+         * @return record standing for it in this tree.
+         */
+        LeafType createLeaf(LeafType nestedLeaf);
+
+        /**
+         * @param leaf record returned by {@link #createLeaf(Object)} whose leaf left the tree.
+         */
+        void releaseLeaf(LeafType leaf);
+    }
+
+    private final List<LeafType> children;
+    private final OffsetIndex offsetIndex;
+    private final LeafFactory<LeafType> factory;
+    // Tree of every nested child, null for leaf children; parallel to the children.
+    private final List<LeafTree<LeafType>> nestedTrees;
+    private int nestedCount;
+
+    private final List<LeafType> leaves;
+    private final OffsetIndex leafIndex;
+    // Records created for the leaves of nested trees, keyed by the nested tree's own record.
+    private IdentityHashMap<LeafType, LeafType> nestedLeaves;
+    // Per child as of the last rebuild: index of its first leaf and version of its nested tree.
+    private int[] firstLeaves;
+    private int[] nestedVersions;
+
+    private final BitSet changedChildren;
+    private boolean structureChanged;
+    private int version;
+
+    /**
+     * @param children    the owner's children, which the owner keeps up to date.
+     * @param offsetIndex the owner's index of its children, which the owner keeps up to date.
+     * @param factory     records for the leaves of nested trees.
+     */
+    LeafTree(List<LeafType> children, OffsetIndex offsetIndex, LeafFactory<LeafType> factory) {
+        this.children = children;
+        this.offsetIndex = offsetIndex;
+        this.factory = factory;
+        nestedTrees = new ArrayList<>();
+        leaves = new ArrayList<>();
+        leafIndex = new OffsetIndex();
+        nestedLeaves = new IdentityHashMap<>();
+        firstLeaves = new int[0];
+        nestedVersions = new int[0];
+        changedChildren = new BitSet();
+    }
+
+    /**
+     * @return leaves of the whole tree, in list order.
+     */
+    List<LeafType> getLeaves() {
+        return nestedCount == 0 ? children : leaves;
+    }
+
+    /**
+     * @return index of the leaves returned by {@link #getLeaves()}.
+     */
+    OffsetIndex getIndex() {
+        return nestedCount == 0 ? offsetIndex : leafIndex;
+    }
+
+    /**
+     * @return number which changes whenever the leaves are added, removed or reordered.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * A child was inserted at the index.
+     *
+     * @param nested tree of the child if it is a composite itself, or null.
+     */
+    void insert(int index, LeafTree<LeafType> nested) {
+        nestedTrees.add(index, nested);
+        if (nested != null) {
+            nestedCount++;
+        }
+        structureChanged = true;
+    }
+
+    void remove(int index) {
+        if (nestedTrees.remove(index) != null) {
+            nestedCount--;
+        }
+        structureChanged = true;
+    }
+
+    void move(int fromIndex, int toIndex) {
+        nestedTrees.add(toIndex, nestedTrees.remove(fromIndex));
+        structureChanged = true;
+    }
+
+    /**
+     * The child at the index reported a change.
+     *
+     * @param countChanged whether its item or slot counts may have changed. Changes which keep the
+     *                     counts only matter for nested children whose own leaves changed.
+     */
+    void onChildChanged(int index, boolean countChanged) {
+        if (structureChanged || nestedCount == 0) return;
+        if (countChanged) {
+            changedChildren.set(index);
+            return;
+        }
+        LeafTree<LeafType> nested = nestedTrees.get(index);
+        if (nested != null && nested.version != nestedVersions[index]) {
+            structureChanged = true;
+        }
+    }
+
+    /**
+     * Bring the leaves and their index up to date with the changes reported since the last sync.
+     * Nested trees must have been synced before.
+     */
+    void sync() {
+        if (structureChanged) {
+            rebuild();
+        } else {
+            for (int i = changedChildren.nextSetBit(0); i >= 0; i = changedChildren.nextSetBit(i + 1)) {
+                if (!syncChild(i)) {
+                    rebuild();
+                    break;
+                }
+            }
+        }
+        changedChildren.clear();
+    }
+
+    /**
+     * Copy the counts of a child's leaves into the leaf index.
+     *
+     * @return false when the child's leaves changed, which needs a rebuild.
+     */
+    private boolean syncChild(int index) {
+        LeafTree<LeafType> nested = nestedTrees.get(index);
+        int firstLeaf = firstLeaves[index];
+        if (nested == null) {
+            copyCounts(offsetIndex, index, firstLeaf);
+            return true;
+        }
+        if (nested.version != nestedVersions[index]) return false;
+        OffsetIndex nestedIndex = nested.getIndex();
+        for (int j = 0, size = nestedIndex.size(); j < size; j++) {
+            copyCounts(nestedIndex, j, firstLeaf + j);
+        }
+        return true;
+    }
+
+    private void copyCounts(OffsetIndex source, int sourceIndex, int leafPosition) {
+        leafIndex.setCount(leafPosition, source.getCount(sourceIndex));
+        int leading = source.getLeadingSlots(sourceIndex);
+        int trailing = source.getTrailingSlots(sourceIndex);
+        if (leafIndex.getLeadingSlots(leafPosition) != leading || leafIndex.getTrailingSlots(leafPosition) != trailing) {
+            leafIndex.setSlots(leafPosition, leading, trailing);
+        }
+    }
+
+    private void rebuild() {
+        structureChanged = false;
+        version++;
+        leaves.clear();
+        leafIndex.clear();
+        IdentityHashMap<LeafType, LeafType> previous = nestedLeaves;
+        nestedLeaves = new IdentityHashMap<>();
+        if (nestedCount > 0) {
+            int size = children.size();
+            if (firstLeaves.length < size) {
+                firstLeaves = new int[size];
+                nestedVersions = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                firstLeaves[i] = leaves.size();
+                LeafTree<LeafType> nested = nestedTrees.get(i);
+                if (nested == null) {
+                    addLeaf(children.get(i), offsetIndex, i);
+                    continue;
+                }
+                nestedVersions[i] = nested.version;
+                List<LeafType> nestedLeafList = nested.getLeaves();
+                OffsetIndex nestedIndex = nested.getIndex();
+                for (int j = 0, leafCount = nestedLeafList.size(); j < leafCount; j++) {
+                    LeafType nestedLeaf = nestedLeafList.get(j);
+                    LeafType leaf = previous.remove(nestedLeaf);
+                    if (leaf == null) {
+                        leaf = factory.createLeaf(nestedLeaf);
+                    }
+                    nestedLeaves.put(nestedLeaf, leaf);
+                    addLeaf(leaf, nestedIndex, j);
+                }
+            }
+        }
+        for (LeafType leaf : previous.values()) {
+            factory.releaseLeaf(leaf);
+        }
+    }
+
+    private void addLeaf(LeafType leaf, OffsetIndex source, int sourceIndex) {
+        leaves.add(leaf);
+        leafIndex.add(source.getCount(sourceIndex));
+        leafIndex.setSlots(leafIndex.size() - 1, source.getLeadingSlots(sourceIndex), source.getTrailingSlots(sourceIndex));
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+/**
+ * MetricsListener receives the duration of every hot path operation of a CompositeAdapter, see
+ * CompositeAdapter.setMetricsListener(). It is called on the main thread from within layout, so
+ * implementations must be cheap and must not allocate; {@link AdapterMetrics} is one.
+ */
+public interface MetricsListener {
+
+    int OPERATION_CREATE = 0;
+    int OPERATION_BIND = 1;
+    int OPERATION_VIEW_TYPE = 2;
+    int OPERATION_LOOKUP = 3;
+    int OPERATION_COUNT = 4;
+
+    /**
+     * @param operation     one of the OPERATION_* constants.
+     * @param childId       id of the child adapter that handled the position, see
+     *                      CompositeAdapter.getChildId().
+     * @param viewType      composite view type involved, or -1 for lookups.
+     * @param durationNanos time spent, measured with System.nanoTime().
+     */
+    void onOperation(int operation, int childId, int viewType, long durationNanos);
+}
@@ -0,0 +1,62 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.BitSet;
+
+/**
+ * NamespaceAllocator hands out the {@link StableIds} namespaces of a composite's children and takes
+ * them back when children are removed, so the 16 bit namespace space is never exhausted by adding
+ * and removing children over a long session.
+ * <p/>
+ * Namespaces are handed out round robin, so a released namespace is reused as late as possible
+ * and item ids of a removed child are unlikely to meet those of a new child while the removal
+ * is still animating. {@link StableIds#SLOT_NAMESPACE} is never handed out.
+ */
+final class NamespaceAllocator {
+
+    private final BitSet used;
+    private int next;
+
+    NamespaceAllocator() {
+        used = new BitSet(StableIds.SLOT_NAMESPACE);
+    }
+
+    /**
+     * @return free namespace, below {@link StableIds#SLOT_NAMESPACE}.
+     * @throws IllegalStateException when every namespace is taken.
+     */
+    int allocate() {
+        int namespace = used.nextClearBit(next);
+        if (namespace >= StableIds.SLOT_NAMESPACE) {
+            namespace = used.nextClearBit(0);
+            if (namespace >= StableIds.SLOT_NAMESPACE) {
+                throw new IllegalStateException("No more than " + StableIds.SLOT_NAMESPACE + " children are supported.");
+            }
+        }
+        used.set(namespace);
+        next = namespace + 1;
+        return namespace;
+    }
+
+    /**
+     * @param namespace namespace returned by {@link #allocate()} which is no longer in use.
+     */
+    void release(int namespace) {
+        used.clear(namespace);
+    }
+}
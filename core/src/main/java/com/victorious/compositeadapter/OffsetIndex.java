@@ -0,0 +1,332 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.Arrays;
+
+/**
+ * OffsetIndex keeps the item count of every child adapter along with the cumulative offset
+ * (prefix sum) at which each child starts within the aggregate list.
+ * <p/>
+ * Lookups from an absolute position to the owning child are resolved with a binary search over
+ * the offsets, so the cost grows with log(children) rather than with the number of children.
+ * The child found by the previous lookup and its neighbours are checked first: scrolling binds
+ * nearly consecutive positions, so most lookups then take a couple of comparisons.
+ * Counts are only ever updated from the child change callbacks, so no lookup needs to ask a
+ * child adapter for its item count.
+ * <p/>
+ * A child may additionally own leading and trailing slots (e.g. a section header and footer):
+ * virtual positions before and after its items which belong to the child's span of the aggregate
+ * list without being items of the child. Offsets refer to the start of the span; relative
+ * positions refer to the child's items, so slots resolve to negative relative positions (leading)
+ * or ones at or past the item count (trailing).
+ */
+final class OffsetIndex {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] counts;
+    private int[] leadingSlots;
+    private int[] trailingSlots;
+    private int[] offsets;
+    private int size;
+    private int totalCount;
+    // Child owning the last position found; only a hint, so structural changes need not update it.
+    private int lastChild;
+
+    OffsetIndex() {
+        counts = new int[DEFAULT_CAPACITY];
+        leadingSlots = new int[DEFAULT_CAPACITY];
+        trailingSlots = new int[DEFAULT_CAPACITY];
+        offsets = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * @return number of children tracked by this index.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return sum of the item and slot counts for every child.
+     */
+    int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @param childIndex index of the child within the composite.
+     * @return item count last recorded for the child.
+     */
+    int getCount(int childIndex) {
+        checkChildIndex(childIndex);
+        return counts[childIndex];
+    }
+
+    /**
+     * @param childIndex index of the child within the composite.
+     * @return absolute position at which the child's span, leading slots included, starts.
+     */
+    int getOffset(int childIndex) {
+        checkChildIndex(childIndex);
+        return offsets[childIndex];
+    }
+
+    /**
+     * @param childIndex index of the child within the composite.
+     * @return absolute position of the child's first item (or where it would be).
+     */
+    int getItemOffset(int childIndex) {
+        checkChildIndex(childIndex);
+        return offsets[childIndex] + leadingSlots[childIndex];
+    }
+
+    /**
+     * @param childIndex index of the child within the composite.
+     * @return number of positions in the child's span: slots and items.
+     */
+    int getSpan(int childIndex) {
+        checkChildIndex(childIndex);
+        return leadingSlots[childIndex] + counts[childIndex] + trailingSlots[childIndex];
+    }
+
+    int getLeadingSlots(int childIndex) {
+        checkChildIndex(childIndex);
+        return leadingSlots[childIndex];
+    }
+
+    int getTrailingSlots(int childIndex) {
+        checkChildIndex(childIndex);
+        return trailingSlots[childIndex];
+    }
+
+    /**
+     * Replace the slot counts of a child, shifting the offsets of every child after it.
+     *
+     * @param childIndex index of the child within the composite.
+     * @param leading    number of positions before the child's items.
+     * @param trailing   number of positions after the child's items.
+     */
+    void setSlots(int childIndex, int leading, int trailing) {
+        checkChildIndex(childIndex);
+        if (leading < 0 || trailing < 0) {
+            throw new IllegalArgumentException("Slot counts must not be negative.");
+        }
+        totalCount += leading + trailing - leadingSlots[childIndex] - trailingSlots[childIndex];
+        leadingSlots[childIndex] = leading;
+        trailingSlots[childIndex] = trailing;
+        updateOffsets(childIndex + 1);
+    }
+
+    /**
+     * Append a new child at the end of the index.
+     *
+     * @param itemCount current item count of the child.
+     */
+    void add(int itemCount) {
+        insert(size, itemCount);
+    }
+
+    /**
+     * Insert a new child, shifting the children from childIndex on one place back.
+     *
+     * @param childIndex index the new child will have, at most {@link #size()}.
+     * @param itemCount  current item count of the child.
+     */
+    void insert(int childIndex, int itemCount) {
+        if (childIndex < 0 || childIndex > size) {
+            throw new IndexOutOfBoundsException("No child exists at index " + childIndex);
+        }
+        if (itemCount < 0) {
+            throw new IllegalArgumentException("itemCount must not be negative.");
+        }
+        if (size == counts.length) {
+            int capacity = size * 2;
+            counts = Arrays.copyOf(counts, capacity);
+            leadingSlots = Arrays.copyOf(leadingSlots, capacity);
+            trailingSlots = Arrays.copyOf(trailingSlots, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        shift(childIndex, childIndex + 1, size - childIndex);
+        counts[childIndex] = itemCount;
+        leadingSlots[childIndex] = 0;
+        trailingSlots[childIndex] = 0;
+        size++;
+        totalCount += itemCount;
+        updateOffsets(childIndex);
+    }
+
+    /**
+     * Remove a child, shifting the children after it one place forward.
+     *
+     * @param childIndex index of the child within the composite.
+     * @return span the removed child had, slots included.
+     */
+    int remove(int childIndex) {
+        int span = getSpan(childIndex);
+        shift(childIndex + 1, childIndex, size - childIndex - 1);
+        size--;
+        totalCount -= span;
+        updateOffsets(childIndex);
+        return span;
+    }
+
+    /**
+     * Move a child to a new index, shifting the children in between.
+     *
+     * @param fromIndex current index of the child.
+     * @param toIndex   index the child will have after the move.
+     */
+    void move(int fromIndex, int toIndex) {
+        checkChildIndex(fromIndex);
+        checkChildIndex(toIndex);
+        if (fromIndex == toIndex) return;
+        int itemCount = counts[fromIndex];
+        int leading = leadingSlots[fromIndex];
+        int trailing = trailingSlots[fromIndex];
+        if (fromIndex < toIndex) {
+            shift(fromIndex + 1, fromIndex, toIndex - fromIndex);
+        } else {
+            shift(toIndex, toIndex + 1, fromIndex - toIndex);
+        }
+        counts[toIndex] = itemCount;
+        leadingSlots[toIndex] = leading;
+        trailingSlots[toIndex] = trailing;
+        updateOffsets(Math.min(fromIndex, toIndex));
+    }
+
+    /**
+     * Remove every child, keeping the allocated capacity.
+     */
+    void clear() {
+        size = 0;
+        totalCount = 0;
+        lastChild = 0;
+    }
+
+    /**
+     * Replace the recorded item count for a child, shifting the offsets of every child after it.
+     *
+     * @param childIndex index of the child within the composite.
+     * @param itemCount  new item count of the child.
+     */
+    void setCount(int childIndex, int itemCount) {
+        checkChildIndex(childIndex);
+        if (itemCount < 0) {
+            throw new IllegalArgumentException("itemCount must not be negative.");
+        }
+        int delta = itemCount - counts[childIndex];
+        if (delta == 0) return;
+        counts[childIndex] = itemCount;
+        for (int i = childIndex + 1; i < size; i++) {
+            offsets[i] += delta;
+        }
+        totalCount += delta;
+    }
+
+    /**
+     * Given the absolute index position within the entire list, find the owning child and the
+     * position relative to that child's items in a single lookup; leading slots resolve to negative
+     * relative positions and trailing slots to ones at or past the child's item count. The result
+     * is packed into a long so that the bind path does not need to allocate; unpack it with
+     * {@link #childIndexOf(long)} and {@link #relativePositionOf(long)}.
+     *
+     * @param absolutePosition index position for a single data point within the aggregate list.
+     * @return packed child index and relative position.
+     */
+    long resolve(int absolutePosition) {
+        int childIndex = findChild(absolutePosition);
+        int relativePosition = absolutePosition - offsets[childIndex] - leadingSlots[childIndex];
+        return ((long) childIndex << 32) | (relativePosition & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param resolved value returned by {@link #resolve(int)}.
+     * @return index of the owning child.
+     */
+    static int childIndexOf(long resolved) {
+        return (int) (resolved >>> 32);
+    }
+
+    /**
+     * @param resolved value returned by {@link #resolve(int)}.
+     * @return position relative to the owning child.
+     */
+    static int relativePositionOf(long resolved) {
+        return (int) resolved;
+    }
+
+    /**
+     * Given the absolute index position within the entire list, find the index of the child
+     * that owns it.
+     *
+     * @param absolutePosition index position for a single data point within the aggregate list.
+     * @return index of the owning child.
+     */
+    int findChild(int absolutePosition) {
+        if (absolutePosition < 0 || absolutePosition >= totalCount) {
+            throw new IndexOutOfBoundsException("absolutePosition index larger than total item count.");
+        }
+        // Find the last child whose offset is <= absolutePosition. Children with an empty span
+        // share their offset with the next child, so the last match is always the owner.
+        int child = lastChild < size ? lastChild : size - 1;
+        if (offsets[child] <= absolutePosition) {
+            if (child + 1 == size || offsets[child + 1] > absolutePosition) return child;
+            if (child + 2 == size || offsets[child + 2] > absolutePosition) return lastChild = child + 1;
+        } else if (offsets[child - 1] <= absolutePosition) {
+            return lastChild = child - 1;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= absolutePosition) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return lastChild = low;
+    }
+
+    /**
+     * Recompute the offsets from a child on; the ones before it are unaffected.
+     */
+    private void updateOffsets(int fromIndex) {
+        int offset = fromIndex == 0 ? 0 : offsets[fromIndex - 1] + leadingSlots[fromIndex - 1] + counts[fromIndex - 1] + trailingSlots[fromIndex - 1];
+        for (int i = fromIndex; i < size; i++) {
+            offsets[i] = offset;
+            offset += leadingSlots[i] + counts[i] + trailingSlots[i];
+        }
+    }
+
+    /**
+     * Move the per child entries of length children from one index to another.
+     */
+    private void shift(int fromIndex, int toIndex, int length) {
+        System.arraycopy(counts, fromIndex, counts, toIndex, length);
+        System.arraycopy(leadingSlots, fromIndex, leadingSlots, toIndex, length);
+        System.arraycopy(trailingSlots, fromIndex, trailingSlots, toIndex, length);
+    }
+
+    private void checkChildIndex(int childIndex) {
+        if (childIndex < 0 || childIndex >= size) {
+            throw new IndexOutOfBoundsException("No child exists at index " + childIndex);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+/**
+ * PageTracker holds the paging state of a {@link PagedAdapter} apart from the items themselves:
+ * the item count, which pages are requested or loaded, and which of them lie too far from the
+ * last bound page to be kept.
+ * <p/>
+ * Every request gets its own token. A page released or reset while its request is in flight
+ * forgets the token, so the late result is recognized as stale by {@link #onPageLoaded(int, int)}
+ * and discarded, even when the page has been requested again in the meantime.
+ */
+final class PageTracker {
+
+    /**
+     * Drops the items of released pages.
+     */
+    interface Releaser {
+
+        void releasePage(int pageIndex);
+    }
+
+    /**
+     * Returned by {@link #request(int)} when the page is already requested or loaded.
+     */
+    static final int NO_REQUEST = 0;
+
+    private static final int LOADED = 0;
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int retainDistance;
+    private int itemCount;
+    private int lastBoundPage = -1;
+    private int nextToken = 1;
+
+    // Tracked pages sorted by index, with the token of their request or LOADED.
+    private int[] pageIndices;
+    private int[] tokens;
+    private int size;
+
+    /**
+     * @param pageSize           number of items per page.
+     * @param prefetchDistance   number of items around a bound position whose pages are loaded.
+     * @param retainDistance     number of pages around the last bound page kept in memory; raised
+     *                           to the pages the prefetch distance spans, so prefetched pages
+     *                           are not released right away.
+     * @param estimatedItemCount item count reported until the loader reports the real one.
+     */
+    PageTracker(int pageSize, int prefetchDistance, int retainDistance, int estimatedItemCount) {
+        if (pageSize <= 0 || estimatedItemCount < 0 || prefetchDistance < 0 || retainDistance < 0) {
+            throw new IllegalArgumentException("Invalid paging parameters.");
+        }
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.retainDistance = Math.max(retainDistance, (prefetchDistance + pageSize - 1) / pageSize);
+        itemCount = estimatedItemCount;
+        pageIndices = new int[DEFAULT_CAPACITY];
+        tokens = new int[DEFAULT_CAPACITY];
+    }
+
+    int getItemCount() {
+        return itemCount;
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+
+    int getPageIndex(int position) {
+        return position / pageSize;
+    }
+
+    /**
+     * @return first page to load when the position is bound.
+     */
+    int getFirstPageAround(int position) {
+        return Math.max(0, position - prefetchDistance) / pageSize;
+    }
+
+    /**
+     * @return last page to load when the position is bound.
+     */
+    int getLastPageAround(int position) {
+        return Math.min(Math.max(0, itemCount - 1), position + prefetchDistance) / pageSize;
+    }
+
+    /**
+     * @param relativePosition position bound in a neighbouring adapter, relative to this one:
+     *                         negative when above it, at least the item count when below it.
+     * @return page to load because the position is close, or -1.
+     */
+    int getNearbyPage(int relativePosition) {
+        if (relativePosition < 0 && relativePosition >= -prefetchDistance) return 0;
+        if (relativePosition >= itemCount && relativePosition < itemCount + prefetchDistance && itemCount > 0) {
+            return (itemCount - 1) / pageSize;
+        }
+        return -1;
+    }
+
+    boolean isLoaded(int pageIndex) {
+        int i = indexOf(pageIndex);
+        return i >= 0 && tokens[i] == LOADED;
+    }
+
+    /**
+     * Start a request for the page unless it is requested or loaded already.
+     *
+     * @return token identifying the request, or {@link #NO_REQUEST}.
+     */
+    int request(int pageIndex) {
+        int i = indexOf(pageIndex);
+        if (i >= 0) return NO_REQUEST;
+        int token = nextToken++;
+        if (nextToken == LOADED) {
+            nextToken++;
+        }
+        insert(~i, pageIndex, token);
+        return token;
+    }
+
+    /**
+     * @return whether the result of the request is current; the page then counts as loaded.
+     */
+    boolean onPageLoaded(int pageIndex, int token) {
+        int i = indexOf(pageIndex);
+        if (i < 0 || tokens[i] != token) return false;
+        tokens[i] = LOADED;
+        return true;
+    }
+
+    /**
+     * Forget a failed request, so the page is requested again the next time it is needed.
+     */
+    void onPageFailed(int pageIndex, int token) {
+        int i = indexOf(pageIndex);
+        if (i >= 0 && tokens[i] == token) {
+            remove(i);
+        }
+    }
+
+    /**
+     * Release the pages further than the retain distance from the bound position's page, once the
+     * bound page changes. Requests in flight for them are forgotten.
+     */
+    void onPositionBound(int position, Releaser releaser) {
+        int boundPage = position / pageSize;
+        if (boundPage == lastBoundPage) return;
+        lastBoundPage = boundPage;
+        for (int i = size - 1; i >= 0; i--) {
+            int pageIndex = pageIndices[i];
+            if (Math.abs(pageIndex - boundPage) <= retainDistance) continue;
+            boolean loaded = tokens[i] == LOADED;
+            remove(i);
+            if (loaded) {
+                releaser.releasePage(pageIndex);
+            }
+        }
+    }
+
+    /**
+     * Correct the item count with a loaded page: the total if the loader reported it, the end of
+     * the page if it is short, and otherwise at least the end of the page.
+     *
+     * @return new item count.
+     */
+    int onPageCounted(int pageIndex, int loadedCount, int totalItemCount) {
+        int pageStart = pageIndex * pageSize;
+        if (totalItemCount >= 0) {
+            itemCount = totalItemCount;
+        } else if (loadedCount < pageSize) {
+            itemCount = pageStart + loadedCount;
+        } else {
+            itemCount = Math.max(itemCount, pageStart + pageSize);
+        }
+        return itemCount;
+    }
+
+    /**
+     * @return number of positions of the loaded page which were shown as placeholders before, and
+     * need rebinding.
+     */
+    int getPlaceholderCount(int pageIndex, int loadedCount, int oldItemCount) {
+        int pageStart = pageIndex * pageSize;
+        return Math.max(0, Math.min(pageStart + loadedCount, Math.min(oldItemCount, itemCount)) - pageStart);
+    }
+
+    /**
+     * Forget every page and request; results still in flight are discarded.
+     */
+    void reset(int estimatedItemCount) {
+        size = 0;
+        lastBoundPage = -1;
+        itemCount = estimatedItemCount;
+    }
+
+    private int indexOf(int pageIndex) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (pageIndices[mid] < pageIndex) {
+                low = mid + 1;
+            } else if (pageIndices[mid] > pageIndex) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~low;
+    }
+
+    private void insert(int index, int pageIndex, int token) {
+        if (size == pageIndices.length) {
+            int[] grownIndices = new int[size * 2];
+            int[] grownTokens = new int[size * 2];
+            System.arraycopy(pageIndices, 0, grownIndices, 0, size);
+            System.arraycopy(tokens, 0, grownTokens, 0, size);
+            pageIndices = grownIndices;
+            tokens = grownTokens;
+        }
+        System.arraycopy(pageIndices, index, pageIndices, index + 1, size - index);
+        System.arraycopy(tokens, index, tokens, index + 1, size - index);
+        pageIndices[index] = pageIndex;
+        tokens[index] = token;
+        size++;
+    }
+
+    private void remove(int index) {
+        System.arraycopy(pageIndices, index + 1, pageIndices, index, size - index - 1);
+        System.arraycopy(tokens, index + 1, tokens, index, size - index - 1);
+        size--;
+    }
+}
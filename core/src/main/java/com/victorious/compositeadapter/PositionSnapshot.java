@@ -0,0 +1,188 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.List;
+
+/**
+ * PositionSnapshot is an immutable copy of a composite's position index and view type mapping,
+ * which may be read from any thread without locking while the main thread keeps changing the
+ * composite.
+ * <p/>
+ * The composite publishes a new snapshot through a volatile reference whenever it notifies a
+ * change, so a snapshot describes the list as the RecyclerView was last told about it. Inside a
+ * transaction the index changes before the buffered notifications go out, so publishing waits for
+ * the commit; while the merged notifications of a transaction are dispatched, the snapshot already
+ * describes the list after all of them.
+ * Every snapshot carries a version which increases with each publication, letting readers tell
+ * whether a result computed from an older snapshot may be stale.
+ * <p/>
+ * Children are only handed out as references; calling into them from a background thread is
+ * subject to their own thread safety.
+ *
+ * @param <ChildType> type of the children, typically RecyclerView.Adapter.
+ */
+public final class PositionSnapshot<ChildType> {
+
+    private final int version;
+    private final Object[] children;
+    // One entry per child plus the total count; spans include the children's slots.
+    private final int[] spanOffsets;
+    private final int[] itemOffsets;
+    private final int[] itemCounts;
+    private final Object[] viewTypeOwners;
+    private final int[] localViewTypes;
+
+    private PositionSnapshot(int version, Object[] children, int[] spanOffsets, int[] itemOffsets, int[] itemCounts, Object[] viewTypeOwners, int[] localViewTypes) {
+        this.version = version;
+        this.children = children;
+        this.spanOffsets = spanOffsets;
+        this.itemOffsets = itemOffsets;
+        this.itemCounts = itemCounts;
+        this.viewTypeOwners = viewTypeOwners;
+        this.localViewTypes = localViewTypes;
+    }
+
+    /**
+     * Copy the current state of a composite. Must be called on the thread that owns the index and
+     * table.
+     *
+     * @param version       version of the new snapshot.
+     * @param children      children in index order.
+     * @param offsetIndex   item counts of the children.
+     * @param viewTypeTable mapping of the composite's view types.
+     */
+    static <ChildType> PositionSnapshot<ChildType> create(int version, List<? extends ChildType> children, OffsetIndex offsetIndex, ViewTypeTable<?> viewTypeTable) {
+        int childCount = offsetIndex.size();
+        if (children.size() != childCount) {
+            throw new IllegalArgumentException("Children do not match the offset index.");
+        }
+        int[] spanOffsets = new int[childCount + 1];
+        int[] itemOffsets = new int[childCount];
+        int[] itemCounts = new int[childCount];
+        for (int i = 0; i < childCount; i++) {
+            spanOffsets[i] = offsetIndex.getOffset(i);
+            itemOffsets[i] = offsetIndex.getItemOffset(i);
+            itemCounts[i] = offsetIndex.getCount(i);
+        }
+        spanOffsets[childCount] = offsetIndex.getTotalCount();
+
+        int viewTypeCount = viewTypeTable.size();
+        Object[] viewTypeOwners = new Object[viewTypeCount];
+        int[] localViewTypes = new int[viewTypeCount];
+        for (int viewType = 0; viewType < viewTypeCount; viewType++) {
+            viewTypeOwners[viewType] = viewTypeTable.getOwner(viewType);
+            localViewTypes[viewType] = viewTypeTable.getLocalType(viewType);
+        }
+        return new PositionSnapshot<>(version, children.toArray(), spanOffsets, itemOffsets, itemCounts, viewTypeOwners, localViewTypes);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return number of positions in the composite, header and footer slots included.
+     */
+    public int getItemCount() {
+        return spanOffsets[children.length];
+    }
+
+    /**
+     * @return number of children.
+     */
+    public int getChildCount() {
+        return children.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ChildType getChild(int childIndex) {
+        checkChildIndex(childIndex);
+        return (ChildType) children[childIndex];
+    }
+
+    /**
+     * @return absolute position of the first item of the child, after its header slot if any.
+     */
+    public int getChildOffset(int childIndex) {
+        checkChildIndex(childIndex);
+        return itemOffsets[childIndex];
+    }
+
+    /**
+     * @return number of items of the child, slots excluded.
+     */
+    public int getChildItemCount(int childIndex) {
+        checkChildIndex(childIndex);
+        return itemCounts[childIndex];
+    }
+
+    /**
+     * @param position absolute position within the composite.
+     * @return index of the child owning the position; the position relative to the child is
+     * {@code position - getChildOffset(childIndex)}, which is negative for the child's header and
+     * at least its item count for its footer.
+     */
+    public int findChild(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            throw new IndexOutOfBoundsException("Position " + position + " not in snapshot of " + getItemCount() + " items.");
+        }
+        // Last child whose offset is <= position, which skips empty children.
+        int low = 0;
+        int high = children.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (spanOffsets[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param viewType view type reported by the composite, e.g. ViewHolder.getItemViewType().
+     * @return child owning the view type, the header or footer slot class for slot view types, or
+     * null if the child has been removed.
+     */
+    public Object getViewTypeOwner(int viewType) {
+        checkViewType(viewType);
+        return viewTypeOwners[viewType];
+    }
+
+    /**
+     * @param viewType view type reported by the composite.
+     * @return view type as reported by the owning child.
+     */
+    public int getLocalViewType(int viewType) {
+        checkViewType(viewType);
+        return localViewTypes[viewType];
+    }
+
+    private void checkChildIndex(int childIndex) {
+        if (childIndex < 0 || childIndex >= children.length) {
+            throw new IndexOutOfBoundsException("No child exists at index " + childIndex);
+        }
+    }
+
+    private void checkViewType(int viewType) {
+        if (viewType < 0 || viewType >= localViewTypes.length) {
+            throw new IllegalArgumentException("Unknown view type " + viewType);
+        }
+    }
+}
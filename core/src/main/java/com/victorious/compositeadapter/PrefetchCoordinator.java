@@ -0,0 +1,110 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PrefetchCoordinator splits an absolute range of the composite (the visible positions plus the
+ * ones about to scroll into view) into one relative range per child it overlaps, and tells the
+ * children which were part of the previous range but not of the new one to cancel their work.
+ * <p/>
+ * Finding the first child is a binary search over the {@link OffsetIndex}; only the overlapped
+ * children are visited after that. Children are tracked by identity, so cancellation follows a
+ * child across structural changes of the composite.
+ *
+ * @param <ChildType> type of the children, typically RecyclerView.Adapter.
+ */
+final class PrefetchCoordinator<ChildType> {
+
+    interface Target<ChildType> {
+
+        /**
+         * @param child         child overlapped by the range.
+         * @param positionStart first overlapped position, relative to the child.
+         * @param itemCount     number of overlapped positions.
+         */
+        void onPrefetchRange(ChildType child, int positionStart, int itemCount);
+
+        void onPrefetchCancelled(ChildType child);
+    }
+
+    private List<ChildType> activeChildren;
+    private List<ChildType> nextActiveChildren;
+
+    PrefetchCoordinator() {
+        activeChildren = new ArrayList<>();
+        nextActiveChildren = new ArrayList<>();
+    }
+
+    /**
+     * Replace the prefetch range. The range is clipped to the items of the composite.
+     *
+     * @param positionStart first absolute position of the range.
+     * @param itemCount     number of positions in the range.
+     * @param offsetIndex   item counts of the children.
+     * @param children      children in index order.
+     * @param target        receives the per-child ranges and cancellations.
+     */
+    void setRange(int positionStart, int itemCount, OffsetIndex offsetIndex, List<? extends ChildType> children, Target<ChildType> target) {
+        int start = Math.max(0, positionStart);
+        int end = Math.min(offsetIndex.getTotalCount(), positionStart + Math.max(0, itemCount));
+        nextActiveChildren.clear();
+        if (start < end) {
+            for (int childIndex = offsetIndex.findChild(start); childIndex < offsetIndex.size(); childIndex++) {
+                if (offsetIndex.getOffset(childIndex) >= end) break;
+                // Only the child's items are prefetched, not its slots.
+                int offset = offsetIndex.getItemOffset(childIndex);
+                int relativeStart = Math.max(start, offset) - offset;
+                int relativeEnd = Math.min(end, offset + offsetIndex.getCount(childIndex)) - offset;
+                if (relativeStart >= relativeEnd) continue;
+                ChildType child = children.get(childIndex);
+                nextActiveChildren.add(child);
+                target.onPrefetchRange(child, relativeStart, relativeEnd - relativeStart);
+            }
+        }
+        cancelInactive(target);
+    }
+
+    /**
+     * Cancel the prefetches of every child, e.g. when the RecyclerView is detached.
+     */
+    void cancel(Target<ChildType> target) {
+        nextActiveChildren.clear();
+        cancelInactive(target);
+    }
+
+    private void cancelInactive(Target<ChildType> target) {
+        for (int i = 0, size = activeChildren.size(); i < size; i++) {
+            ChildType child = activeChildren.get(i);
+            if (!containsIdentical(nextActiveChildren, child)) {
+                target.onPrefetchCancelled(child);
+            }
+        }
+        List<ChildType> previous = activeChildren;
+        activeChildren = nextActiveChildren;
+        nextActiveChildren = previous;
+    }
+
+    private static boolean containsIdentical(List<?> list, Object item) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (list.get(i) == item) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SlotTypes registers the view types of header and footer slots in the composite's
+ * {@link ViewTypeTable}. Each slot class gets a negative owner id of its own, so slots only share
+ * ViewHolders with slots of the same class reporting the same view type, and the table keeps only
+ * the slot class, not a slot instance.
+ */
+final class SlotTypes {
+
+    private final ViewTypeTable<Object> viewTypeTable;
+    private final Map<Class<?>, Integer> ownerIds;
+
+    SlotTypes(ViewTypeTable<Object> viewTypeTable) {
+        this.viewTypeTable = viewTypeTable;
+        ownerIds = new HashMap<>();
+    }
+
+    /**
+     * @return negative owner id under which the view types of the slot class are registered.
+     */
+    int getOwnerId(Class<?> slotClass) {
+        Integer id = ownerIds.get(slotClass);
+        if (id == null) {
+            id = -1 - ownerIds.size();
+            ownerIds.put(slotClass, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return whether the global view type belongs to a header or footer slot.
+     */
+    boolean isSlotType(int viewType) {
+        return viewTypeTable.getChildId(viewType) < 0;
+    }
+
+    /**
+     * @param slot         header or footer currently shown.
+     * @param slotViewType view type the slot reports.
+     * @return whether the slot can create the ViewHolders of the global view type: it must be of
+     * the registered class and report the same view type.
+     */
+    boolean canCreate(Object slot, int slotViewType, int viewType) {
+        return isSlotType(viewType) && viewTypeTable.getOwner(viewType) == slot.getClass()
+                && viewTypeTable.getLocalType(viewType) == slotViewType;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.Arrays;
+
+/**
+ * SpanIndexCache remembers the span index and row (span group) of every position of a grid, so
+ * GridLayoutManager can ask for them in O(1) instead of walking every preceding position on each
+ * call.
+ * <p/>
+ * Positions are laid out as GridLayoutManager does by default: an item goes to the current row
+ * if its span size still fits, otherwise it starts a new row. The cache is filled sequentially up
+ * to the highest position asked for and must be invalidated whenever a span size may have
+ * changed, i.e. on every adapter change.
+ */
+final class SpanIndexCache {
+
+    interface SpanSizeSource {
+
+        int getSpanSize(int position);
+    }
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] spanIndices;
+    private int[] groupIndices;
+    // Number of positions cached, and the layout state right after the last cached position.
+    private int cachedCount;
+    private int nextSpan;
+    private int nextGroup;
+    private int spanCount;
+
+    SpanIndexCache() {
+        spanIndices = new int[DEFAULT_CAPACITY];
+        groupIndices = new int[DEFAULT_CAPACITY];
+    }
+
+    int getSpanIndex(int position, int spanCount, SpanSizeSource source) {
+        fill(position, spanCount, source);
+        return spanIndices[position];
+    }
+
+    int getSpanGroupIndex(int position, int spanCount, SpanSizeSource source) {
+        fill(position, spanCount, source);
+        return groupIndices[position];
+    }
+
+    void invalidate() {
+        cachedCount = 0;
+        nextSpan = 0;
+        nextGroup = 0;
+    }
+
+    private void fill(int position, int spanCount, SpanSizeSource source) {
+        if (position < 0) {
+            throw new IndexOutOfBoundsException("Negative position " + position);
+        }
+        if (spanCount != this.spanCount) {
+            invalidate();
+            this.spanCount = spanCount;
+        }
+        if (position < cachedCount) return;
+        if (position >= spanIndices.length) {
+            int capacity = Math.max(position + 1, spanIndices.length * 2);
+            spanIndices = Arrays.copyOf(spanIndices, capacity);
+            groupIndices = Arrays.copyOf(groupIndices, capacity);
+        }
+        for (int i = cachedCount; i <= position; i++) {
+            int spanSize = source.getSpanSize(i);
+            if (nextSpan + spanSize > spanCount) {
+                spanIndices[i] = 0;
+                groupIndices[i] = nextGroup + 1;
+            } else {
+                spanIndices[i] = nextSpan;
+                groupIndices[i] = nextGroup;
+            }
+            nextSpan += spanSize;
+            if (nextSpan == spanCount) {
+                nextSpan = 0;
+                nextGroup++;
+            } else if (nextSpan > spanCount) {
+                nextSpan = spanSize;
+                nextGroup++;
+            }
+        }
+        cachedCount = position + 1;
+    }
+}
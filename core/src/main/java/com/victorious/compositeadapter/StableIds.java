@@ -0,0 +1,61 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+/**
+ * StableIds combines a child adapter's own item id with the child's namespace into an id which is
+ * unique across the whole composite.
+ * <p/>
+ * The namespace occupies the top {@link #NAMESPACE_BITS} bits and the child's item id the
+ * remaining low bits, so ids are collision free as long as each child's ids fit in
+ * {@link #ITEM_ID_BITS} bits (any non negative id below 2^48, which covers database row ids and
+ * counters). Larger or negative child ids are truncated and may collide.
+ * <p/>
+ * The last namespace, {@link #SLOT_NAMESPACE}, is reserved for header and footer slots.
+ */
+final class StableIds {
+
+    static final int NAMESPACE_BITS = 16;
+    static final int ITEM_ID_BITS = Long.SIZE - NAMESPACE_BITS;
+    static final int MAX_NAMESPACE = (1 << NAMESPACE_BITS) - 1;
+    static final int SLOT_NAMESPACE = MAX_NAMESPACE;
+
+    private static final long ITEM_ID_MASK = (1L << ITEM_ID_BITS) - 1;
+
+    private StableIds() {
+    }
+
+    /**
+     * @param namespace id of the child within the composite, at most {@link #MAX_NAMESPACE}.
+     * @param itemId    id reported by the child.
+     * @return id unique across the composite.
+     */
+    static long combine(int namespace, long itemId) {
+        if (namespace < 0 || namespace > MAX_NAMESPACE) {
+            throw new IllegalArgumentException("Namespace " + namespace + " out of range.");
+        }
+        return ((long) namespace << ITEM_ID_BITS) | (itemId & ITEM_ID_MASK);
+    }
+
+    /**
+     * @param stableId id returned by {@link #combine(int, long)}.
+     * @return namespace of the child which owns the id.
+     */
+    static int namespaceOf(long stableId) {
+        return (int) (stableId >>> ITEM_ID_BITS);
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UpdateBatch buffers range notifications (already translated to absolute positions) while a
+ * transaction is open and replays them in as few notifications as possible when it is committed.
+ * <p/>
+ * Each incoming range is merged with the previous one when both are of the same kind and the
+ * ranges touch or overlap once applied in order, e.g. two inserts where the second lands inside or
+ * right after the first. Changed ranges are only merged when they carry the same payload. A full
+ * data set change swallows every other pending range. Moves are never merged.
+ */
+final class UpdateBatch {
+
+    /**
+     * Receives the merged notifications when the batch is dispatched.
+     */
+    interface Callback {
+
+        void onDataSetChanged();
+
+        void onItemRangeChanged(int positionStart, int itemCount, Object payload);
+
+        void onItemRangeInserted(int positionStart, int itemCount);
+
+        void onItemRangeRemoved(int positionStart, int itemCount);
+
+        void onItemMoved(int fromPosition, int toPosition);
+
+        /**
+         * Children were added, removed or moved without any position changing, e.g. empty ones.
+         */
+        void onStructureChanged();
+    }
+
+    private static final int CHANGED = 0;
+    private static final int INSERTED = 1;
+    private static final int REMOVED = 2;
+    private static final int MOVED = 3;
+
+    private final List<Update> pending = new ArrayList<>();
+    private int depth;
+    private boolean dataSetChanged;
+    private boolean structureChanged;
+
+    /**
+     * Open a (possibly nested) transaction.
+     */
+    void begin() {
+        depth++;
+    }
+
+    /**
+     * Close a transaction.
+     *
+     * @return true when the outermost transaction was closed and pending updates should be dispatched.
+     */
+    boolean end() {
+        if (depth == 0) {
+            throw new IllegalStateException("No transaction in progress.");
+        }
+        depth--;
+        return depth == 0;
+    }
+
+    /**
+     * @return whether a transaction is open and updates are being buffered.
+     */
+    boolean isBatching() {
+        return depth > 0;
+    }
+
+    void addDataSetChanged() {
+        dataSetChanged = true;
+        pending.clear();
+    }
+
+    void addChanged(int positionStart, int itemCount, Object payload) {
+        if (dataSetChanged || itemCount <= 0) return;
+        Update last = last();
+        if (last != null && last.type == CHANGED && samePayload(last.payload, payload)
+                && positionStart <= last.positionStart + last.itemCount
+                && positionStart + itemCount >= last.positionStart) {
+            int end = Math.max(last.positionStart + last.itemCount, positionStart + itemCount);
+            last.positionStart = Math.min(last.positionStart, positionStart);
+            last.itemCount = end - last.positionStart;
+            return;
+        }
+        pending.add(new Update(CHANGED, positionStart, itemCount, payload));
+    }
+
+    void addInserted(int positionStart, int itemCount) {
+        if (dataSetChanged || itemCount <= 0) return;
+        Update last = last();
+        // Items inserted inside or right after the previously inserted block extend it.
+        if (last != null && last.type == INSERTED
+                && positionStart >= last.positionStart
+                && positionStart <= last.positionStart + last.itemCount) {
+            last.itemCount += itemCount;
+            return;
+        }
+        pending.add(new Update(INSERTED, positionStart, itemCount, null));
+    }
+
+    void addRemoved(int positionStart, int itemCount) {
+        if (dataSetChanged || itemCount <= 0) return;
+        Update last = last();
+        // Once the previous block is gone, a removal touching its start position extends it.
+        if (last != null && last.type == REMOVED
+                && positionStart <= last.positionStart
+                && positionStart + itemCount >= last.positionStart) {
+            last.positionStart = positionStart;
+            last.itemCount += itemCount;
+            return;
+        }
+        pending.add(new Update(REMOVED, positionStart, itemCount, null));
+    }
+
+    /**
+     * Only dispatched when nothing else is, since any other notification also reports it.
+     */
+    void addStructureChanged() {
+        structureChanged = true;
+    }
+
+    void addMoved(int fromPosition, int toPosition) {
+        if (dataSetChanged || fromPosition == toPosition) return;
+        // A moved item's target is stored in the count slot.
+        pending.add(new Update(MOVED, fromPosition, toPosition, null));
+    }
+
+    /**
+     * Replay the buffered updates and clear the batch.
+     */
+    void dispatch(Callback callback) {
+        boolean onlyStructureChanged = structureChanged && !dataSetChanged && pending.isEmpty();
+        structureChanged = false;
+        if (onlyStructureChanged) {
+            callback.onStructureChanged();
+            return;
+        }
+        if (dataSetChanged) {
+            dataSetChanged = false;
+            callback.onDataSetChanged();
+            return;
+        }
+        for (int i = 0, size = pending.size(); i < size; i++) {
+            Update update = pending.get(i);
+            switch (update.type) {
+                case CHANGED:
+                    callback.onItemRangeChanged(update.positionStart, update.itemCount, update.payload);
+                    break;
+                case INSERTED:
+                    callback.onItemRangeInserted(update.positionStart, update.itemCount);
+                    break;
+                case REMOVED:
+                    callback.onItemRangeRemoved(update.positionStart, update.itemCount);
+                    break;
+                case MOVED:
+                    callback.onItemMoved(update.positionStart, update.itemCount);
+                    break;
+            }
+        }
+        pending.clear();
+    }
+
+    private static boolean samePayload(Object first, Object second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    private Update last() {
+        return pending.isEmpty() ? null : pending.get(pending.size() - 1);
+    }
+
+    private static class Update {
+        private final int type;
+        private int positionStart;
+        private int itemCount;
+        private final Object payload;
+
+        private Update(int type, int positionStart, int itemCount, Object payload) {
+            this.type = type;
+            this.positionStart = positionStart;
+            this.itemCount = itemCount;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+/**
+ * UpdateTranslator turns a change reported by a child adapter (in positions relative to that
+ * child) into the matching change of the aggregate list.
+ * <p/>
+ * For every child change it keeps the {@link OffsetIndex} and the optional {@link ViewTypeCache}
+ * in step, then forwards the change in absolute positions either straight to the target callback
+ * or, while a transaction is open, to the {@link UpdateBatch}.
+ */
+final class UpdateTranslator {
+
+    private final OffsetIndex offsetIndex;
+    private final UpdateBatch updateBatch;
+    private final UpdateBatch.Callback target;
+    private ViewTypeCache viewTypeCache;
+    private boolean scopedChanges;
+
+    UpdateTranslator(OffsetIndex offsetIndex, UpdateBatch.Callback target) {
+        this.offsetIndex = offsetIndex;
+        this.target = target;
+        updateBatch = new UpdateBatch();
+    }
+
+    /**
+     * @param viewTypeCache cache to keep in step with child changes, or null.
+     */
+    void setViewTypeCache(ViewTypeCache viewTypeCache) {
+        this.viewTypeCache = viewTypeCache;
+    }
+
+    /**
+     * @param scopedChanges whether a child's full change is reported over that child's items only
+     *                      instead of as a change of the whole data set.
+     */
+    void setScopedChanges(boolean scopedChanges) {
+        this.scopedChanges = scopedChanges;
+    }
+
+    void beginTransaction() {
+        updateBatch.begin();
+    }
+
+    void commitTransaction() {
+        if (updateBatch.end()) {
+            updateBatch.dispatch(target);
+        }
+    }
+
+    /**
+     * @return whether a transaction is open and notifications are being buffered.
+     */
+    boolean isBatching() {
+        return updateBatch.isBatching();
+    }
+
+    /**
+     * A new child was inserted at childIndex; its items are reported as one inserted range.
+     */
+    void onChildInserted(int childIndex, int itemCount) {
+        offsetIndex.insert(childIndex, itemCount);
+        int absolutePosition = offsetIndex.getOffset(childIndex);
+        if (viewTypeCache != null) {
+            viewTypeCache.insert(absolutePosition, itemCount);
+        }
+        if (itemCount == 0) {
+            onStructureChanged();
+        } else if (updateBatch.isBatching()) {
+            updateBatch.addInserted(absolutePosition, itemCount);
+        } else {
+            target.onItemRangeInserted(absolutePosition, itemCount);
+        }
+    }
+
+    /**
+     * The child at childIndex was removed; its items and slots are reported as one removed range.
+     */
+    void onChildRemoved(int childIndex) {
+        int absolutePosition = offsetIndex.getOffset(childIndex);
+        int itemCount = offsetIndex.remove(childIndex);
+        if (viewTypeCache != null) {
+            viewTypeCache.remove(absolutePosition, itemCount);
+        }
+        if (itemCount == 0) {
+            onStructureChanged();
+        } else if (updateBatch.isBatching()) {
+            updateBatch.addRemoved(absolutePosition, itemCount);
+        } else {
+            target.onItemRangeRemoved(absolutePosition, itemCount);
+        }
+    }
+
+    /**
+     * The child at fromIndex was moved to toIndex. RecyclerView can only move single items, so
+     * rather than replaying one move per item the span covered by the children between both
+     * indices is reported as one changed range; its size does not change.
+     */
+    void onChildMoved(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) return;
+        int low = Math.min(fromIndex, toIndex);
+        int high = Math.max(fromIndex, toIndex);
+        int absolutePosition = offsetIndex.getOffset(low);
+        int itemCount = offsetIndex.getOffset(high) + offsetIndex.getSpan(high) - absolutePosition;
+        offsetIndex.move(fromIndex, toIndex);
+        if (viewTypeCache != null) {
+            viewTypeCache.invalidate(absolutePosition, itemCount);
+        }
+        if (itemCount == 0) {
+            onStructureChanged();
+        } else if (updateBatch.isBatching()) {
+            updateBatch.addChanged(absolutePosition, itemCount, null);
+        } else {
+            target.onItemRangeChanged(absolutePosition, itemCount, null);
+        }
+    }
+
+    /**
+     * The child is observed again after a time its changes were not reported. Only a changed count
+     * is reported, as a change of the child; otherwise its cached view types are dropped, since
+     * its items may have changed without notice too.
+     */
+    void onChildRefreshed(int childIndex, int itemCount) {
+        if (itemCount != offsetIndex.getCount(childIndex)) {
+            onChildChanged(childIndex, itemCount);
+        } else if (viewTypeCache != null) {
+            viewTypeCache.invalidate(offsetIndex.getItemOffset(childIndex), itemCount);
+        }
+    }
+
+    /**
+     * Every item of the child may have changed and its count is now itemCount. In scoped mode the
+     * items present before and after are reported as changed and the difference as inserted or
+     * removed after them, so the rest of the list is left alone.
+     */
+    void onChildChanged(int childIndex, int itemCount) {
+        int oldItemCount = offsetIndex.getCount(childIndex);
+        offsetIndex.setCount(childIndex, itemCount);
+        if (scopedChanges) {
+            onRangeReplaced(offsetIndex.getItemOffset(childIndex), oldItemCount, itemCount);
+            return;
+        }
+        if (viewTypeCache != null) {
+            int offset = offsetIndex.getItemOffset(childIndex);
+            viewTypeCache.remove(offset, oldItemCount);
+            viewTypeCache.insert(offset, itemCount);
+        }
+        if (updateBatch.isBatching()) {
+            updateBatch.addDataSetChanged();
+        } else {
+            target.onDataSetChanged();
+        }
+    }
+
+    /**
+     * The leading slots of the child were replaced by leading new ones. Slots present before and
+     * after are reported as changed, the difference as inserted or removed after them.
+     */
+    void onChildLeadingSlotsChanged(int childIndex, int leading) {
+        int absolutePosition = offsetIndex.getOffset(childIndex);
+        int oldLeading = offsetIndex.getLeadingSlots(childIndex);
+        offsetIndex.setSlots(childIndex, leading, offsetIndex.getTrailingSlots(childIndex));
+        onRangeReplaced(absolutePosition, oldLeading, leading);
+    }
+
+    /**
+     * The trailing slots of the child were replaced by trailing new ones, see
+     * {@link #onChildLeadingSlotsChanged(int, int)}.
+     */
+    void onChildTrailingSlotsChanged(int childIndex, int trailing) {
+        int absolutePosition = offsetIndex.getItemOffset(childIndex) + offsetIndex.getCount(childIndex);
+        int oldTrailing = offsetIndex.getTrailingSlots(childIndex);
+        offsetIndex.setSlots(childIndex, offsetIndex.getLeadingSlots(childIndex), trailing);
+        onRangeReplaced(absolutePosition, oldTrailing, trailing);
+    }
+
+    /**
+     * The oldCount positions at absolutePosition were replaced by newCount new ones.
+     */
+    private void onRangeReplaced(int absolutePosition, int oldCount, int newCount) {
+        int keptCount = Math.min(oldCount, newCount);
+        if (keptCount > 0) {
+            if (viewTypeCache != null) {
+                viewTypeCache.invalidate(absolutePosition, keptCount);
+            }
+            if (updateBatch.isBatching()) {
+                updateBatch.addChanged(absolutePosition, keptCount, null);
+            } else {
+                target.onItemRangeChanged(absolutePosition, keptCount, null);
+            }
+        }
+        int position = absolutePosition + keptCount;
+        if (newCount > oldCount) {
+            if (viewTypeCache != null) {
+                viewTypeCache.insert(position, newCount - oldCount);
+            }
+            if (updateBatch.isBatching()) {
+                updateBatch.addInserted(position, newCount - oldCount);
+            } else {
+                target.onItemRangeInserted(position, newCount - oldCount);
+            }
+        } else if (newCount < oldCount) {
+            if (viewTypeCache != null) {
+                viewTypeCache.remove(position, oldCount - newCount);
+            }
+            if (updateBatch.isBatching()) {
+                updateBatch.addRemoved(position, oldCount - newCount);
+            } else {
+                target.onItemRangeRemoved(position, oldCount - newCount);
+            }
+        }
+    }
+
+    /**
+     * Children were added, removed or moved without any position changing, here or in a nested
+     * composite. Reported on its own so that outer composites still refresh their leaves.
+     */
+    void onStructureChanged() {
+        if (updateBatch.isBatching()) {
+            updateBatch.addStructureChanged();
+        } else {
+            target.onStructureChanged();
+        }
+    }
+
+    void onChildItemRangeChanged(int childIndex, int positionStart, int itemCount, Object payload) {
+        int absolutePosition = getAbsolutePosition(childIndex, positionStart, itemCount);
+        if (viewTypeCache != null) {
+            viewTypeCache.invalidate(absolutePosition, itemCount);
+        }
+        if (updateBatch.isBatching()) {
+            updateBatch.addChanged(absolutePosition, itemCount, payload);
+        } else {
+            target.onItemRangeChanged(absolutePosition, itemCount, payload);
+        }
+    }
+
+    void onChildItemRangeInserted(int childIndex, int positionStart, int itemCount) {
+        int absolutePosition = getAbsolutePosition(childIndex, positionStart, 0);
+        offsetIndex.setCount(childIndex, offsetIndex.getCount(childIndex) + itemCount);
+        if (viewTypeCache != null) {
+            viewTypeCache.insert(absolutePosition, itemCount);
+        }
+        if (updateBatch.isBatching()) {
+            updateBatch.addInserted(absolutePosition, itemCount);
+        } else {
+            target.onItemRangeInserted(absolutePosition, itemCount);
+        }
+    }
+
+    void onChildItemRangeRemoved(int childIndex, int positionStart, int itemCount) {
+        int absolutePosition = getAbsolutePosition(childIndex, positionStart, itemCount);
+        offsetIndex.setCount(childIndex, offsetIndex.getCount(childIndex) - itemCount);
+        if (viewTypeCache != null) {
+            viewTypeCache.remove(absolutePosition, itemCount);
+        }
+        if (updateBatch.isBatching()) {
+            updateBatch.addRemoved(absolutePosition, itemCount);
+        } else {
+            target.onItemRangeRemoved(absolutePosition, itemCount);
+        }
+    }
+
+    /**
+     * Moves never change a child's item count, so only the view type cache and the notifications
+     * need translating. RecyclerView only understands single item moves, so a move of itemCount
+     * items is replayed as itemCount single moves which leave the block starting at toPosition.
+     */
+    void onChildItemRangeMoved(int childIndex, int fromPosition, int toPosition, int itemCount) {
+        int absoluteFrom = getAbsolutePosition(childIndex, fromPosition, itemCount);
+        int absoluteTo = getAbsolutePosition(childIndex, toPosition, itemCount);
+        if (absoluteFrom == absoluteTo) return;
+        for (int i = 0; i < itemCount; i++) {
+            if (absoluteFrom < absoluteTo) {
+                moveItem(absoluteFrom, absoluteTo + itemCount - 1);
+            } else {
+                moveItem(absoluteFrom + i, absoluteTo + i);
+            }
+        }
+    }
+
+    private void moveItem(int fromPosition, int toPosition) {
+        if (viewTypeCache != null) {
+            viewTypeCache.move(fromPosition, toPosition);
+        }
+        if (updateBatch.isBatching()) {
+            updateBatch.addMoved(fromPosition, toPosition);
+        } else {
+            target.onItemMoved(fromPosition, toPosition);
+        }
+    }
+
+    /**
+     * Given the relative index for a specific child, find the absolute position within the entire
+     * list, checking that the range starting there fits within the child.
+     *
+     * @param childIndex       index of the source child.
+     * @param relativePosition relative position for the child.
+     * @param itemCount        number of existing child items the range covers.
+     * @return absolute position
+     */
+    private int getAbsolutePosition(int childIndex, int relativePosition, int itemCount) {
+        if (relativePosition < 0 || itemCount < 0 || relativePosition + itemCount > offsetIndex.getCount(childIndex)) {
+            throw new IndexOutOfBoundsException("Relative position index doesn't map to an absolute position.");
+        }
+        return offsetIndex.getItemOffset(childIndex) + relativePosition;
+    }
+}
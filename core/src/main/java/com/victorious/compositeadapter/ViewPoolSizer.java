@@ -0,0 +1,159 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.Arrays;
+
+/**
+ * ViewPoolSizer holds the create and bind counts per global view type and splits a pool budget
+ * between the view types in proportion to their share of binds, within [minPerType, maxPerType].
+ * <p/>
+ * Only view types with a nonzero count take part, so the budget follows the view types in use
+ * rather than every view type ever handed out; view types of removed children are dropped with
+ * {@link #release(int, Pool)}.
+ */
+final class ViewPoolSizer {
+
+    /**
+     * Receives the pool sizes, e.g. a RecyclerView.RecycledViewPool.
+     */
+    interface Pool {
+
+        void setMaxRecycledViews(int viewType, int max);
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int minPerType;
+    private final int maxPerType;
+    private final int budgetPerType;
+
+    // Indexed by global view type, which the composite hands out sequentially from 0.
+    private int[] createCounts;
+    private int[] bindCounts;
+    private int[] maxRecycledViews;
+    private int viewTypeCount;
+
+    /**
+     * @param minPerType    smallest pool size given to any view type in use.
+     * @param maxPerType    largest pool size given to any view type.
+     * @param budgetPerType average pool size per view type in use.
+     */
+    ViewPoolSizer(int minPerType, int maxPerType, int budgetPerType) {
+        if (minPerType < 0 || maxPerType < minPerType || budgetPerType < 0) {
+            throw new IllegalArgumentException("Invalid pool sizing parameters.");
+        }
+        this.minPerType = minPerType;
+        this.maxPerType = maxPerType;
+        this.budgetPerType = budgetPerType;
+        createCounts = new int[DEFAULT_CAPACITY];
+        bindCounts = new int[DEFAULT_CAPACITY];
+        maxRecycledViews = new int[DEFAULT_CAPACITY];
+    }
+
+    int getCreateCount(int viewType) {
+        return viewType >= 0 && viewType < viewTypeCount ? createCounts[viewType] : 0;
+    }
+
+    int getBindCount(int viewType) {
+        return viewType >= 0 && viewType < viewTypeCount ? bindCounts[viewType] : 0;
+    }
+
+    /**
+     * @return pool size last applied to the view type, or 0 when not resized yet.
+     */
+    int getMaxRecycledViews(int viewType) {
+        return viewType >= 0 && viewType < viewTypeCount ? maxRecycledViews[viewType] : 0;
+    }
+
+    int getTotalCreateCount() {
+        int total = 0;
+        for (int viewType = 0; viewType < viewTypeCount; viewType++) {
+            total += createCounts[viewType];
+        }
+        return total;
+    }
+
+    void onCreated(int viewType) {
+        ensureViewType(viewType);
+        createCounts[viewType]++;
+    }
+
+    void onBound(int viewType) {
+        ensureViewType(viewType);
+        bindCounts[viewType]++;
+    }
+
+    /**
+     * Clear the create and bind counters. Pool sizes already applied are kept.
+     */
+    void resetCounters() {
+        Arrays.fill(createCounts, 0);
+        Arrays.fill(bindCounts, 0);
+    }
+
+    /**
+     * Forget a view type which will not be bound again and empty its part of the pool.
+     */
+    void release(int viewType, Pool pool) {
+        if (viewType < 0 || viewType >= viewTypeCount) return;
+        createCounts[viewType] = 0;
+        bindCounts[viewType] = 0;
+        if (maxRecycledViews[viewType] != 0) {
+            maxRecycledViews[viewType] = 0;
+            pool.setMaxRecycledViews(viewType, 0);
+        }
+    }
+
+    /**
+     * Split the budget between the view types in use and apply the sizes which changed.
+     */
+    void resize(Pool pool) {
+        long totalBinds = 0;
+        int typesInUse = 0;
+        for (int viewType = 0; viewType < viewTypeCount; viewType++) {
+            totalBinds += bindCounts[viewType];
+            if (bindCounts[viewType] != 0 || createCounts[viewType] != 0) {
+                typesInUse++;
+            }
+        }
+        if (totalBinds == 0) return;
+
+        long budget = (long) budgetPerType * typesInUse;
+        for (int viewType = 0; viewType < viewTypeCount; viewType++) {
+            if (bindCounts[viewType] == 0 && createCounts[viewType] == 0) continue;
+            long share = (budget * bindCounts[viewType] + totalBinds - 1) / totalBinds;
+            int size = (int) Math.max(minPerType, Math.min(maxPerType, share));
+            if (size != maxRecycledViews[viewType]) {
+                maxRecycledViews[viewType] = size;
+                pool.setMaxRecycledViews(viewType, size);
+            }
+        }
+    }
+
+    private void ensureViewType(int viewType) {
+        if (viewType >= createCounts.length) {
+            int capacity = Math.max(viewType + 1, createCounts.length * 2);
+            createCounts = Arrays.copyOf(createCounts, capacity);
+            bindCounts = Arrays.copyOf(bindCounts, capacity);
+            maxRecycledViews = Arrays.copyOf(maxRecycledViews, capacity);
+        }
+        if (viewType >= viewTypeCount) {
+            viewTypeCount = viewType + 1;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.Arrays;
+
+/**
+ * ViewTypeCache remembers the global view type resolved for every absolute position so that
+ * repeated getItemViewType() calls for the same position do not have to be delegated to the child
+ * adapter again.
+ * <p/>
+ * Entries are only invalidated for the ranges reported by the child change callbacks: inserted and
+ * removed ranges shift the entries after them, moved entries travel with their item and changed
+ * ranges are cleared.
+ */
+final class ViewTypeCache {
+
+    static final int UNKNOWN = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] viewTypes;
+    private int size;
+
+    /**
+     * @param size number of positions in the aggregate list.
+     */
+    ViewTypeCache(int size) {
+        viewTypes = new int[Math.max(DEFAULT_CAPACITY, size)];
+        reset(size);
+    }
+
+    /**
+     * @return number of positions tracked by the cache.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param position absolute position.
+     * @return cached view type for the position or {@link #UNKNOWN}.
+     */
+    int get(int position) {
+        if (position < 0 || position >= size) return UNKNOWN;
+        return viewTypes[position];
+    }
+
+    /**
+     * @param position absolute position.
+     * @param viewType global view type resolved for the position.
+     */
+    void put(int position, int viewType) {
+        if (position >= 0 && position < size) {
+            viewTypes[position] = viewType;
+        }
+    }
+
+    /**
+     * Forget every cached view type.
+     *
+     * @param size number of positions in the aggregate list.
+     */
+    void reset(int size) {
+        ensureCapacity(size);
+        this.size = size;
+        Arrays.fill(viewTypes, 0, size, UNKNOWN);
+    }
+
+    /**
+     * Clear the cached view types for a range of positions whose contents changed.
+     */
+    void invalidate(int positionStart, int itemCount) {
+        checkRange(positionStart, itemCount, size);
+        Arrays.fill(viewTypes, positionStart, positionStart + itemCount, UNKNOWN);
+    }
+
+    /**
+     * Open up a range of unknown view types, shifting the entries after it.
+     */
+    void insert(int positionStart, int itemCount) {
+        checkRange(positionStart, 0, size);
+        if (itemCount < 0) throw new IllegalArgumentException("itemCount must not be negative.");
+        ensureCapacity(size + itemCount);
+        System.arraycopy(viewTypes, positionStart, viewTypes, positionStart + itemCount, size - positionStart);
+        Arrays.fill(viewTypes, positionStart, positionStart + itemCount, UNKNOWN);
+        size += itemCount;
+    }
+
+    /**
+     * Drop a range of entries, shifting the entries after it.
+     */
+    void remove(int positionStart, int itemCount) {
+        checkRange(positionStart, itemCount, size);
+        int end = positionStart + itemCount;
+        System.arraycopy(viewTypes, end, viewTypes, positionStart, size - end);
+        size -= itemCount;
+    }
+
+    /**
+     * Move a single entry, shifting the entries in between.
+     */
+    void move(int fromPosition, int toPosition) {
+        checkRange(fromPosition, 1, size);
+        checkRange(toPosition, 1, size);
+        int viewType = viewTypes[fromPosition];
+        if (fromPosition < toPosition) {
+            System.arraycopy(viewTypes, fromPosition + 1, viewTypes, fromPosition, toPosition - fromPosition);
+        } else {
+            System.arraycopy(viewTypes, toPosition, viewTypes, toPosition + 1, fromPosition - toPosition);
+        }
+        viewTypes[toPosition] = viewType;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > viewTypes.length) {
+            viewTypes = Arrays.copyOf(viewTypes, Math.max(capacity, viewTypes.length * 2));
+        }
+    }
+
+    private static void checkRange(int positionStart, int itemCount, int size) {
+        if (positionStart < 0 || itemCount < 0 || positionStart + itemCount > size) {
+            throw new IndexOutOfBoundsException("Range [" + positionStart + ", " + (positionStart + itemCount)
+                    + ") outside of cache of size " + size);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * ViewTypeTable gives every (child, local view type) pair its own global view type so that two
+ * child adapters returning the same view type can never be confused with each other.
+ * <p/>
+ * Global view types are handed out sequentially starting at 0, which lets the reverse mapping
+ * (global type to owning child and local type) be a plain array access. The forward mapping is an
+ * open addressing hash table keyed by the child id and local view type packed into a long, so
+ * neither direction boxes or allocates once a pair has been seen.
+ *
+ * @param <OwnerType> type of the object owning a set of local view types, typically the child adapter.
+ */
+final class ViewTypeTable<OwnerType> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int NO_TYPE = -1;
+
+    // Forward table: (child id, local type) -> global type.
+    private long[] keys;
+    private int[] values;
+    private int mask;
+
+    // Reverse table indexed by global type.
+    private Object[] owners;
+    // Weakly held owners of released children, whose ViewHolders may still be recycled.
+    private WeakReference<?>[] releasedOwners;
+    private int[] childIds;
+    private int[] localTypes;
+    private int size;
+
+    ViewTypeTable() {
+        keys = new long[DEFAULT_CAPACITY * 2];
+        values = new int[DEFAULT_CAPACITY * 2];
+        Arrays.fill(values, NO_TYPE);
+        mask = keys.length - 1;
+        owners = new Object[DEFAULT_CAPACITY];
+        releasedOwners = new WeakReference<?>[DEFAULT_CAPACITY];
+        childIds = new int[DEFAULT_CAPACITY];
+        localTypes = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * @return number of global view types handed out so far.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Find the global view type for a local view type of a child, assigning a new one the first
+     * time the pair is seen.
+     *
+     * @param childId   id that is unique to the child within the composite.
+     * @param owner     the child which will create view holders for the local view type.
+     * @param localType view type reported by the child.
+     * @return global view type.
+     */
+    int getGlobalType(int childId, OwnerType owner, int localType) {
+        long key = pack(childId, localType);
+        int slot = slotOf(key);
+        while (values[slot] != NO_TYPE) {
+            if (keys[slot] == key) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+
+        int globalType = size;
+        if (size == owners.length) {
+            int capacity = size * 2;
+            owners = Arrays.copyOf(owners, capacity);
+            releasedOwners = Arrays.copyOf(releasedOwners, capacity);
+            childIds = Arrays.copyOf(childIds, capacity);
+            localTypes = Arrays.copyOf(localTypes, capacity);
+        }
+        owners[globalType] = owner;
+        childIds[globalType] = childId;
+        localTypes[globalType] = localType;
+        size++;
+
+        keys[slot] = key;
+        values[slot] = globalType;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return globalType;
+    }
+
+    /**
+     * @param globalType view type handed out by {@link #getGlobalType(int, Object, int)}.
+     * @return child that owns the global view type, or null once the child was released.
+     */
+    @SuppressWarnings("unchecked")
+    OwnerType getOwner(int globalType) {
+        checkGlobalType(globalType);
+        return (OwnerType) owners[globalType];
+    }
+
+    /**
+     * @param globalType view type handed out by {@link #getGlobalType(int, Object, int)}.
+     * @return child that owned the global view type before being released, as long as it is still
+     * referenced elsewhere, or null.
+     */
+    @SuppressWarnings("unchecked")
+    OwnerType getReleasedOwner(int globalType) {
+        checkGlobalType(globalType);
+        WeakReference<?> ownerRef = releasedOwners[globalType];
+        return ownerRef != null ? (OwnerType) ownerRef.get() : null;
+    }
+
+    /**
+     * Find the child a ViewHolder's callbacks go to from the holder's view type alone, since
+     * holders being recycled or detached may no longer have a position. Owners registered under a
+     * negative id, such as header and footer slot classes, receive no holder callbacks.
+     *
+     * @param globalType view type of the holder, which may be unknown, e.g. -1.
+     * @return owning child, the released child while it is still referenced, or null.
+     */
+    OwnerType getHolderOwner(int globalType) {
+        if (globalType < 0 || globalType >= size || childIds[globalType] < 0) return null;
+        OwnerType owner = getOwner(globalType);
+        return owner != null ? owner : getReleasedOwner(globalType);
+    }
+
+    /**
+     * @param globalType view type handed out by {@link #getGlobalType(int, Object, int)}.
+     * @return id of the child that owns the global view type.
+     */
+    int getChildId(int globalType) {
+        checkGlobalType(globalType);
+        return childIds[globalType];
+    }
+
+    /**
+     * @param globalType view type handed out by {@link #getGlobalType(int, Object, int)}.
+     * @return view type as reported by the owning child.
+     */
+    int getLocalType(int globalType) {
+        checkGlobalType(globalType);
+        return localTypes[globalType];
+    }
+
+    /**
+     * Drop the references to a removed child. Its global view types are never handed out again,
+     * since ViewHolders created for them may still sit in a RecyclerView's pool; the child stays
+     * weakly reachable through {@link #getReleasedOwner(int)} so those holders can still be
+     * handed back to it.
+     *
+     * @param childId id of the removed child.
+     */
+    void release(int childId) {
+        for (int globalType = 0; globalType < size; globalType++) {
+            if (childIds[globalType] == childId && owners[globalType] != null) {
+                releasedOwners[globalType] = new WeakReference<>(owners[globalType]);
+                owners[globalType] = null;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_TYPE);
+        mask = capacity - 1;
+        for (int globalType = 0; globalType < size; globalType++) {
+            long key = pack(childIds[globalType], localTypes[globalType]);
+            int slot = slotOf(key);
+            while (values[slot] != NO_TYPE) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = globalType;
+        }
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void checkGlobalType(int globalType) {
+        if (globalType < 0 || globalType >= size) {
+            throw new IllegalArgumentException("Unknown view type " + globalType);
+        }
+    }
+
+    private static long pack(int childId, int localType) {
+        return ((long) childId << 32) | (localType & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WarmHolders keeps the ViewHolders created ahead of time by a warm-up until RecyclerView asks
+ * for a holder of their view type. Holders of a released view type are dropped, since their view
+ * type is never requested again and they would keep the views of a removed child alive.
+ *
+ * @param <H> ViewHolder type.
+ */
+final class WarmHolders<H> {
+
+    private final List<List<H>> holders;
+
+    WarmHolders() {
+        holders = new ArrayList<>();
+    }
+
+    void put(int viewType, H holder) {
+        while (holders.size() <= viewType) {
+            holders.add(null);
+        }
+        List<H> warm = holders.get(viewType);
+        if (warm == null) {
+            warm = new ArrayList<>();
+            holders.set(viewType, warm);
+        }
+        warm.add(holder);
+    }
+
+    /**
+     * @return a warm holder of the view type, removed from the store, or null if there is none.
+     */
+    H take(int viewType) {
+        List<H> warm = viewType < holders.size() ? holders.get(viewType) : null;
+        return warm == null || warm.isEmpty() ? null : warm.remove(warm.size() - 1);
+    }
+
+    int count(int viewType) {
+        List<H> warm = viewType < holders.size() ? holders.get(viewType) : null;
+        return warm == null ? 0 : warm.size();
+    }
+
+    /**
+     * Drop the warm holders of a view type whose owner left the composite.
+     */
+    void release(int viewType) {
+        if (viewType < holders.size()) {
+            holders.set(viewType, null);
+        }
+    }
+}
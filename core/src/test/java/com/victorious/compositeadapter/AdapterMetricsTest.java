@@ -0,0 +1,68 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdapterMetricsTest {
+
+    @Test
+    public void operationsAreAttributedToChildAndViewType() {
+        AdapterMetrics metrics = new AdapterMetrics(4, 4);
+        metrics.onOperation(MetricsListener.OPERATION_BIND, 1, 2, 100);
+        metrics.onOperation(MetricsListener.OPERATION_BIND, 1, 3, 50);
+        metrics.onOperation(MetricsListener.OPERATION_CREATE, 0, 2, 1000);
+
+        assertEquals(2, metrics.getChildCount(MetricsListener.OPERATION_BIND, 1));
+        assertEquals(150, metrics.getChildTotalNanos(MetricsListener.OPERATION_BIND, 1));
+        assertEquals(0, metrics.getChildCount(MetricsListener.OPERATION_BIND, 0));
+        assertEquals(1, metrics.getViewTypeCount(MetricsListener.OPERATION_BIND, 2));
+        assertEquals(1, metrics.getViewTypeCount(MetricsListener.OPERATION_CREATE, 2));
+        assertEquals(1000, metrics.getViewTypeTotalNanos(MetricsListener.OPERATION_CREATE, 2));
+        assertEquals(2, metrics.getHistogram(MetricsListener.OPERATION_BIND).getCount());
+        assertEquals(1, metrics.getHistogram(MetricsListener.OPERATION_CREATE).getCount());
+    }
+
+    @Test
+    public void untrackedIdsOnlyReachTheHistogram() {
+        AdapterMetrics metrics = new AdapterMetrics(2, 2);
+        metrics.onOperation(MetricsListener.OPERATION_LOOKUP, 5, -1, 10);
+
+        assertEquals(1, metrics.getHistogram(MetricsListener.OPERATION_LOOKUP).getCount());
+        assertEquals(0, metrics.getChildCount(MetricsListener.OPERATION_LOOKUP, 5));
+        assertEquals(0, metrics.getViewTypeCount(MetricsListener.OPERATION_LOOKUP, -1));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNoCounts() throws InterruptedException {
+        final AdapterMetrics metrics = new AdapterMetrics();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        metrics.onOperation(MetricsListener.OPERATION_VIEW_TYPE, 0, 0, 1);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, metrics.getChildCount(MetricsListener.OPERATION_VIEW_TYPE, 0));
+        assertEquals(40000, metrics.getHistogram(MetricsListener.OPERATION_VIEW_TYPE).getCount());
+    }
+
+    @Test
+    public void resetClearsCounters() {
+        AdapterMetrics metrics = new AdapterMetrics();
+        metrics.onOperation(MetricsListener.OPERATION_BIND, 0, 0, 10);
+        metrics.reset();
+
+        assertEquals(0, metrics.getChildCount(MetricsListener.OPERATION_BIND, 0));
+        assertEquals(0, metrics.getHistogram(MetricsListener.OPERATION_BIND).getCount());
+    }
+}
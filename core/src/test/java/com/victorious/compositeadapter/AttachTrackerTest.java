@@ -0,0 +1,259 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AttachTrackerTest {
+
+    private List<FakeChild> children;
+    private OffsetIndex offsetIndex;
+    private List<String> events;
+    private AttachTracker<String, FakeChild> tracker;
+
+    @Before
+    public void setUp() {
+        children = new ArrayList<>();
+        offsetIndex = new OffsetIndex();
+        events = new ArrayList<>();
+        tracker = new AttachTracker<>(children, new RecordingCallback());
+        add(new FakeChild("a", 2));
+        add(new FakeChild("b", 3));
+        events.clear();
+    }
+
+    @Test
+    public void childrenAreOnlyObservedWhileAttached() {
+        assertFalse(tracker.isAttached());
+        assertFalse(children.get(0).observed);
+
+        assertTrue(tracker.onAttached("list"));
+        assertTrue(tracker.isAttached());
+        assertTrue(children.get(0).observed);
+        assertTrue(children.get(1).observed);
+
+        assertTrue(tracker.onDetached("list"));
+        assertFalse(tracker.isAttached());
+        assertFalse(children.get(0).observed);
+        assertFalse(children.get(1).observed);
+    }
+
+    @Test
+    public void attachIsForwardedBeforeCountsAreRead() {
+        tracker.onAttached("list");
+
+        assertEquals(Arrays.asList("attach a list", "attach b list", "observe a", "refresh a", "observe b", "refresh b"), events);
+    }
+
+    @Test
+    public void detachIsForwardedBeforeObservingStops() {
+        tracker.onAttached("list");
+        events.clear();
+
+        tracker.onDetached("list");
+
+        assertEquals(Arrays.asList("detach a list", "detach b list", "unobserve a", "unobserve b"), events);
+    }
+
+    @Test
+    public void countsFollowChangesAcrossDetachAndReattach() {
+        tracker.onAttached("list");
+        children.get(0).setCount(4);
+        assertCounts(4, 3);
+
+        tracker.onDetached("list");
+        children.get(0).setCount(1);
+        children.get(1).setCount(3);
+        // Not observed, so the recorded counts lag behind.
+        assertCounts(4, 3);
+
+        events.clear();
+        tracker.onAttached("list");
+        assertCounts(1, 3);
+        // Only the child whose count changed is reported.
+        assertTrue(events.contains("changed a"));
+        assertFalse(events.contains("changed b"));
+
+        children.get(1).setCount(7);
+        assertCounts(1, 7);
+    }
+
+    @Test
+    public void secondRecyclerViewDoesNotObserveAgain() {
+        tracker.onAttached("first");
+        events.clear();
+
+        assertFalse(tracker.onAttached("second"));
+        assertEquals(Arrays.asList("attach a second", "attach b second"), events);
+
+        events.clear();
+        assertFalse(tracker.onDetached("first"));
+        assertEquals(Arrays.asList("detach a first", "detach b first"), events);
+        assertTrue(children.get(0).observed);
+
+        assertTrue(tracker.onDetached("second"));
+        assertFalse(children.get(0).observed);
+    }
+
+    @Test
+    public void unknownRecyclerViewIsIgnored() {
+        tracker.onAttached("list");
+        events.clear();
+
+        assertFalse(tracker.onDetached("other"));
+        assertTrue(events.isEmpty());
+        assertTrue(children.get(0).observed);
+    }
+
+    @Test
+    public void childAddedWhileAttachedIsAttachedAndObserved() {
+        tracker.onAttached("list");
+        events.clear();
+
+        FakeChild child = new FakeChild("c", 5);
+        add(child);
+
+        assertEquals(Arrays.asList("attach c list", "observe c"), events);
+        child.setCount(6);
+        assertCounts(2, 3, 6);
+    }
+
+    @Test
+    public void childAddedWhileDetachedIsNeitherAttachedNorObserved() {
+        FakeChild child = new FakeChild("c", 5);
+        add(child);
+
+        assertTrue(events.isEmpty());
+        assertFalse(child.observed);
+    }
+
+    @Test
+    public void removedChildIsUnobservedAndDetached() {
+        tracker.onAttached("list");
+        events.clear();
+
+        FakeChild child = children.remove(1);
+        offsetIndex.remove(1);
+        tracker.onChildRemoved(child);
+
+        assertEquals(Arrays.asList("unobserve b", "detach b list"), events);
+        assertFalse(child.observed);
+    }
+
+    @Test
+    public void countsMatchingTheNotificationsPassVerification() {
+        tracker.onAttached("list");
+        children.get(1).setCount(8);
+
+        tracker.verifyItemCounts(offsetIndex);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unnotifiedCountChangeWhileAttachedFailsVerification() {
+        tracker.onAttached("list");
+        children.get(1).count = 8;
+
+        tracker.verifyItemCounts(offsetIndex);
+    }
+
+    @Test
+    public void changesWhileDetachedDoNotFailVerification() {
+        tracker.onAttached("list");
+        tracker.onDetached("list");
+        children.get(1).setCount(8);
+
+        tracker.verifyItemCounts(offsetIndex);
+
+        tracker.onAttached("list");
+        tracker.verifyItemCounts(offsetIndex);
+    }
+
+    @Test
+    public void neverAttachedChildrenAreNotVerified() {
+        children.get(0).count = 9;
+
+        tracker.verifyItemCounts(offsetIndex);
+    }
+
+    private void add(FakeChild child) {
+        tracker.onChildAdded(child);
+        children.add(child);
+        offsetIndex.add(child.count);
+    }
+
+    private void assertCounts(int... counts) {
+        assertEquals(counts.length, offsetIndex.size());
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(counts[i], offsetIndex.getCount(i));
+        }
+    }
+
+    private class FakeChild {
+        private final String name;
+        private int count;
+        private boolean observed;
+
+        private FakeChild(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        /**
+         * Changes the count, notifying only while observed.
+         */
+        private void setCount(int count) {
+            this.count = count;
+            if (observed) {
+                offsetIndex.setCount(children.indexOf(this), count);
+            }
+        }
+    }
+
+    private class RecordingCallback implements AttachTracker.Callback<String, FakeChild> {
+
+        @Override
+        public void onChildAttached(FakeChild child, String view) {
+            events.add("attach " + child.name + " " + view);
+        }
+
+        @Override
+        public void onChildDetached(FakeChild child, String view) {
+            events.add("detach " + child.name + " " + view);
+        }
+
+        @Override
+        public void startObserving(FakeChild child) {
+            assertFalse(child.observed);
+            child.observed = true;
+            events.add("observe " + child.name);
+        }
+
+        @Override
+        public void stopObserving(FakeChild child) {
+            assertTrue(child.observed);
+            child.observed = false;
+            events.add("unobserve " + child.name);
+        }
+
+        @Override
+        public void onChildRefreshed(int index, FakeChild child) {
+            events.add("refresh " + child.name);
+            if (child.count != offsetIndex.getCount(index)) {
+                events.add("changed " + child.name);
+                offsetIndex.setCount(index, child.count);
+            }
+        }
+
+        @Override
+        public int getItemCount(FakeChild child) {
+            return child.count;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails if the position resolution, view type mapping or view type caching used by
+ * onBindViewHolder/getItemViewType starts allocating.
+ */
+public class BindPathAllocationTest {
+
+    private static final int CHILD_COUNT = 80;
+    private static final int ITERATIONS = 100000;
+    private static final int LOCAL_TYPES = 3;
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private OffsetIndex index;
+    private ViewTypeTable<Object> viewTypeTable;
+    private ViewTypeCache viewTypeCache;
+    private Object[] owners;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        index = new OffsetIndex();
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            index.add(i % 7);
+        }
+        viewTypeTable = new ViewTypeTable<>();
+        viewTypeCache = new ViewTypeCache(index.getTotalCount());
+        owners = new Object[CHILD_COUNT];
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            owners[i] = new Object();
+        }
+    }
+
+    @Test
+    public void resolveDoesNotAllocate() {
+        assertDoesNotAllocate("resolving positions", new Workload() {
+            @Override
+            public long run() {
+                return resolveAll();
+            }
+        });
+    }
+
+    @Test
+    public void viewTypeResolutionDoesNotAllocate() {
+        // Every (child, local type) pair is seen while warming up, as it would be after the first
+        // screen, so only the steady state is measured.
+        assertDoesNotAllocate("resolving view types", new Workload() {
+            @Override
+            public long run() {
+                return resolveViewTypes();
+            }
+        });
+    }
+
+    private void assertDoesNotAllocate(String what, Workload workload) {
+        // Warm up so class loading and compilation are not counted.
+        long checksum = workload.run();
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        checksum += workload.run();
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // The counter is only accurate to a few bytes of bookkeeping, but any per-call allocation
+        // would cost at least one object header for each of the ITERATIONS lookups.
+        assertTrue("allocated " + allocated + " bytes while " + what, allocated < ITERATIONS);
+        assertTrue(checksum > 0);
+    }
+
+    @Test
+    public void resolvePacksChildAndRelativePosition() {
+        for (int position = 0, total = index.getTotalCount(); position < total; position++) {
+            long resolved = index.resolve(position);
+            int childIndex = OffsetIndex.childIndexOf(resolved);
+            assertEquals(index.findChild(position), childIndex);
+            assertEquals(position - index.getOffset(childIndex), OffsetIndex.relativePositionOf(resolved));
+        }
+    }
+
+    private long resolveAll() {
+        long checksum = 0;
+        int total = index.getTotalCount();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long resolved = index.resolve(i % total);
+            checksum += OffsetIndex.childIndexOf(resolved) + OffsetIndex.relativePositionOf(resolved);
+        }
+        return checksum;
+    }
+
+    /**
+     * The getItemViewType() and onCreateViewHolder() path: cached view type, or the child's local
+     * type mapped to a global one and back.
+     */
+    private long resolveViewTypes() {
+        long checksum = 0;
+        int total = index.getTotalCount();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int position = i % total;
+            int viewType = viewTypeCache.get(position);
+            if (viewType == ViewTypeCache.UNKNOWN || i % 2 == 0) {
+                long resolved = index.resolve(position);
+                int childIndex = OffsetIndex.childIndexOf(resolved);
+                int localType = OffsetIndex.relativePositionOf(resolved) % LOCAL_TYPES;
+                viewType = viewTypeTable.getGlobalType(childIndex, owners[childIndex], localType);
+                viewTypeCache.put(position, viewType);
+            }
+            checksum += viewTypeTable.getLocalType(viewType) + 1;
+        }
+        return checksum;
+    }
+
+    private interface Workload {
+
+        long run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void durationsLandInPowerOfTwoBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(1000);
+
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(2, histogram.getBucketCount(1));
+        assertEquals(1, histogram.getBucketCount(9));
+        assertEquals(5, histogram.getCount());
+        assertEquals(1006, histogram.getTotalNanos());
+    }
+
+    @Test
+    public void outOfRangeDurationsAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(LatencyHistogram.BUCKET_COUNT - 1));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketUpperBoundNanos(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void percentileReportsBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(50));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000);
+        }
+
+        assertEquals(128, histogram.getPercentileNanos(50));
+        assertEquals(128, histogram.getPercentileNanos(90));
+        assertEquals(8192, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0, histogram.getBucketCount(6));
+    }
+}
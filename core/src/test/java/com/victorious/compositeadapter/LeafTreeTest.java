@@ -0,0 +1,340 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LeafTreeTest {
+
+    @Test
+    public void directChildrenAreTheLeavesWhileNothingIsNested() {
+        Node root = new Node("r");
+        Leaf a = root.add(0, 3);
+        Leaf b = root.add(1, 2);
+        root.sync();
+
+        assertSame(root.children, root.tree.getLeaves());
+        assertSame(root.offsetIndex, root.tree.getIndex());
+        assertLeaves(root, new String[]{a.name, b.name}, new int[]{3, 2});
+    }
+
+    @Test
+    public void nestedChildIsFlattenedIntoItsLeaves() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.add(1, 4);
+        inner.sync();
+        Node root = new Node("r");
+        root.add(0, 1);
+        root.addNested(1, inner);
+        root.add(2, 5);
+        root.sync();
+
+        assertLeaves(root, new String[]{"r0", "i0", "i1", "r2"}, new int[]{1, 2, 4, 5});
+        assertEquals(12, root.tree.getIndex().getTotalCount());
+        assertEquals(2, root.created);
+    }
+
+    @Test
+    public void removingNestedChildReleasesItsLeaves() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.add(1, 4);
+        inner.sync();
+        Node root = new Node("r");
+        root.add(0, 1);
+        root.addNested(1, inner);
+        root.sync();
+        int version = root.tree.getVersion();
+
+        root.remove(1);
+        root.sync();
+
+        assertEquals(2, root.released);
+        assertSame(root.children, root.tree.getLeaves());
+        assertEquals(1, root.tree.getIndex().getTotalCount());
+        assertNotEquals(version, root.tree.getVersion());
+    }
+
+    @Test
+    public void leavesKeepTheirRecordsAcrossRebuilds() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.sync();
+        Node root = new Node("r");
+        root.addNested(0, inner);
+        root.sync();
+        Leaf leaf = root.tree.getLeaves().get(0);
+
+        root.add(0, 7);
+        root.sync();
+
+        assertSame(leaf, root.tree.getLeaves().get(1));
+        assertEquals(1, root.created);
+        assertEquals(0, root.released);
+    }
+
+    @Test
+    public void countChangesAreCopiedInPlace() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.add(1, 4);
+        inner.sync();
+        Node root = new Node("r");
+        root.add(0, 1);
+        root.addNested(1, inner);
+        root.sync();
+        List<Leaf> leaves = root.tree.getLeaves();
+        OffsetIndex index = root.tree.getIndex();
+        int version = root.tree.getVersion();
+
+        inner.setCount(1, 9);
+        inner.sync();
+        root.setCount(1, inner.tree.getIndex().getTotalCount());
+        root.setCount(0, 3);
+        root.sync();
+
+        assertSame(leaves, root.tree.getLeaves());
+        assertSame(index, root.tree.getIndex());
+        assertEquals(version, root.tree.getVersion());
+        assertLeaves(root, new String[]{"r0", "i0", "i1"}, new int[]{3, 2, 9});
+    }
+
+    @Test
+    public void slotChangesAreCopiedInPlace() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.sync();
+        Node root = new Node("r");
+        root.addNested(0, inner);
+        root.sync();
+        int version = root.tree.getVersion();
+
+        inner.offsetIndex.setSlots(0, 1, 1);
+        inner.tree.onChildChanged(0, true);
+        inner.sync();
+        root.offsetIndex.setCount(0, inner.tree.getIndex().getTotalCount());
+        root.tree.onChildChanged(0, true);
+        root.sync();
+
+        assertEquals(version, root.tree.getVersion());
+        assertEquals(1, root.tree.getIndex().getLeadingSlots(0));
+        assertEquals(1, root.tree.getIndex().getTrailingSlots(0));
+        assertEquals(4, root.tree.getIndex().getTotalCount());
+    }
+
+    @Test
+    public void countNeutralChangesDoNotTouchTheLeaves() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.sync();
+        Node root = new Node("r");
+        root.add(0, 1);
+        root.addNested(1, inner);
+        root.sync();
+        int version = root.tree.getVersion();
+
+        root.tree.onChildChanged(0, false);
+        root.tree.onChildChanged(1, false);
+        root.sync();
+
+        assertEquals(version, root.tree.getVersion());
+        assertEquals(0, root.released);
+    }
+
+    @Test
+    public void leavesAddedToNestedChildTriggerRebuild() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.sync();
+        Node root = new Node("r");
+        root.addNested(0, inner);
+        root.sync();
+        int version = root.tree.getVersion();
+
+        inner.add(1, 3);
+        inner.sync();
+        root.setCount(0, inner.tree.getIndex().getTotalCount());
+        root.sync();
+
+        assertNotEquals(version, root.tree.getVersion());
+        assertLeaves(root, new String[]{"i0", "i1"}, new int[]{2, 3});
+    }
+
+    @Test
+    public void leavesMovedInsideNestedChildTriggerRebuild() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.add(1, 3);
+        inner.sync();
+        Node root = new Node("r");
+        root.addNested(0, inner);
+        root.sync();
+
+        inner.move(0, 1);
+        inner.sync();
+        // A moved child is reported as a changed range, which keeps the counts.
+        root.tree.onChildChanged(0, false);
+        root.sync();
+
+        assertLeaves(root, new String[]{"i1", "i0"}, new int[]{3, 2});
+        assertEquals(0, root.released);
+    }
+
+    @Test
+    public void doublyNestedLeavesAreFlattened() {
+        Node innermost = new Node("m");
+        innermost.add(0, 1);
+        innermost.sync();
+        Node inner = new Node("i");
+        inner.addNested(0, innermost);
+        inner.add(1, 2);
+        inner.sync();
+        Node root = new Node("r");
+        root.addNested(0, inner);
+        root.add(1, 3);
+        root.sync();
+
+        assertLeaves(root, new String[]{"m0", "i1", "r1"}, new int[]{1, 2, 3});
+
+        innermost.setCount(0, 4);
+        innermost.sync();
+        inner.setCount(0, 4);
+        inner.sync();
+        root.setCount(0, 6);
+        root.sync();
+
+        assertLeaves(root, new String[]{"m0", "i1", "r1"}, new int[]{4, 2, 3});
+    }
+
+    @Test
+    public void emptyLeafRemovedFromNestedChildIsReleased() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.add(1, 0);
+        inner.sync();
+        Node root = new Node("r");
+        root.addNested(0, inner);
+        root.sync();
+        int version = root.tree.getVersion();
+
+        inner.remove(1);
+        inner.sync();
+        // No position changed, so the nested composite reports an empty changed range.
+        root.tree.onChildChanged(0, false);
+        root.sync();
+
+        assertEquals(1, root.released);
+        assertNotEquals(version, root.tree.getVersion());
+        assertLeaves(root, new String[]{"i0"}, new int[]{2});
+    }
+
+    @Test
+    public void unnestingReturnsToDirectChildren() {
+        Node inner = new Node("i");
+        inner.add(0, 2);
+        inner.sync();
+        Node root = new Node("r");
+        root.add(0, 1);
+        root.addNested(1, inner);
+        root.sync();
+        assertTrue(root.tree.getLeaves() != root.children);
+
+        root.remove(1);
+        root.sync();
+        root.setCount(0, 5);
+        root.sync();
+
+        assertSame(root.children, root.tree.getLeaves());
+        assertEquals(5, root.tree.getIndex().getTotalCount());
+        assertEquals(1, root.released);
+    }
+
+    private static void assertLeaves(Node node, String[] names, int[] counts) {
+        List<Leaf> leaves = node.tree.getLeaves();
+        OffsetIndex index = node.tree.getIndex();
+        assertEquals(names.length, leaves.size());
+        assertEquals(names.length, index.size());
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], leaves.get(i).name);
+            assertEquals(counts[i], index.getCount(i));
+        }
+    }
+
+    private static class Leaf {
+        private final String name;
+
+        private Leaf(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Stands in for a composite: keeps the children and their index, and reports to its tree.
+     */
+    private static class Node implements LeafTree.LeafFactory<Leaf> {
+        private final List<Leaf> children = new ArrayList<>();
+        private final OffsetIndex offsetIndex = new OffsetIndex();
+        private final LeafTree<Leaf> tree = new LeafTree<>(children, offsetIndex, this);
+        private final String name;
+        private int nextName;
+        private int created;
+        private int released;
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        private Leaf add(int index, int count) {
+            Leaf leaf = new Leaf(name + nextName++);
+            children.add(index, leaf);
+            offsetIndex.insert(index, count);
+            tree.insert(index, null);
+            return leaf;
+        }
+
+        private void addNested(int index, Node nested) {
+            children.add(index, new Leaf(name + nextName++));
+            offsetIndex.insert(index, nested.tree.getIndex().getTotalCount());
+            tree.insert(index, nested.tree);
+        }
+
+        private void remove(int index) {
+            children.remove(index);
+            offsetIndex.remove(index);
+            tree.remove(index);
+        }
+
+        private void move(int fromIndex, int toIndex) {
+            children.add(toIndex, children.remove(fromIndex));
+            offsetIndex.move(fromIndex, toIndex);
+            tree.move(fromIndex, toIndex);
+        }
+
+        private void setCount(int index, int count) {
+            offsetIndex.setCount(index, count);
+            tree.onChildChanged(index, true);
+        }
+
+        private void sync() {
+            tree.sync();
+        }
+
+        @Override
+        public Leaf createLeaf(Leaf nestedLeaf) {
+            created++;
+            return new Leaf(nestedLeaf.name);
+        }
+
+        @Override
+        public void releaseLeaf(Leaf leaf) {
+            released++;
+        }
+    }
+}
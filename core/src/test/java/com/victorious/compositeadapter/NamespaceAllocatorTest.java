@@ -0,0 +1,66 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NamespaceAllocatorTest {
+
+    @Test
+    public void releasedNamespacesAreReusedAcrossLongSessions() {
+        NamespaceAllocator allocator = new NamespaceAllocator();
+        Deque<Integer> live = new ArrayDeque<>();
+        Set<Integer> liveSet = new HashSet<>();
+        // Add and remove far more children than there are namespaces, keeping 100 alive.
+        for (int i = 0; i < 200000; i++) {
+            int namespace = allocator.allocate();
+            assertNotEquals(StableIds.SLOT_NAMESPACE, namespace);
+            assertTrue(namespace >= 0 && namespace < StableIds.SLOT_NAMESPACE);
+            assertTrue(liveSet.add(namespace));
+            live.addLast(namespace);
+            if (live.size() > 100) {
+                int released = live.removeFirst();
+                liveSet.remove(released);
+                allocator.release(released);
+            }
+        }
+    }
+
+    @Test
+    public void releasedNamespaceIsNotReusedRightAway() {
+        NamespaceAllocator allocator = new NamespaceAllocator();
+        int first = allocator.allocate();
+        allocator.release(first);
+        assertNotEquals(first, allocator.allocate());
+    }
+
+    @Test
+    public void everyNamespaceBelowTheSlotNamespaceCanBeTaken() {
+        NamespaceAllocator allocator = fullAllocator();
+        allocator.release(1234);
+        assertEquals(1234, allocator.allocate());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void exhaustedNamespacesAreRejected() {
+        fullAllocator().allocate();
+    }
+
+    private static NamespaceAllocator fullAllocator() {
+        NamespaceAllocator allocator = new NamespaceAllocator();
+        Set<Integer> namespaces = new HashSet<>();
+        for (int i = 0; i < StableIds.SLOT_NAMESPACE; i++) {
+            assertTrue(namespaces.add(allocator.allocate()));
+        }
+        assertFalse(namespaces.contains(StableIds.SLOT_NAMESPACE));
+        return allocator;
+    }
+}
@@ -0,0 +1,180 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OffsetIndexTest {
+
+    private OffsetIndex index;
+
+    @Before
+    public void setUp() {
+        index = new OffsetIndex();
+        index.add(3);
+        index.add(0);
+        index.add(5);
+        index.add(0);
+        index.add(2);
+    }
+
+    @Test
+    public void offsetsArePrefixSums() {
+        assertEquals(5, index.size());
+        assertEquals(10, index.getTotalCount());
+        assertEquals(0, index.getOffset(0));
+        assertEquals(3, index.getOffset(1));
+        assertEquals(3, index.getOffset(2));
+        assertEquals(8, index.getOffset(3));
+        assertEquals(8, index.getOffset(4));
+    }
+
+    @Test
+    public void findChildSkipsEmptyChildren() {
+        int[] expected = {0, 0, 0, 2, 2, 2, 2, 2, 4, 4};
+        for (int position = 0; position < expected.length; position++) {
+            assertEquals(expected[position], index.findChild(position));
+        }
+    }
+
+    @Test
+    public void findChildDoesNotDependOnTheAccessOrder() {
+        int[] expected = {0, 0, 0, 2, 2, 2, 2, 2, 4, 4};
+        for (int position = expected.length - 1; position >= 0; position--) {
+            assertEquals(expected[position], index.findChild(position));
+        }
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            int position = random.nextInt(expected.length);
+            assertEquals(expected[position], index.findChild(position));
+        }
+
+        // The last child found no longer exists.
+        assertEquals(4, index.findChild(9));
+        index.remove(4);
+        index.remove(3);
+        assertEquals(2, index.findChild(7));
+        assertEquals(0, index.findChild(0));
+    }
+
+    @Test
+    public void setCountShiftsFollowingOffsets() {
+        index.setCount(1, 4);
+        assertEquals(14, index.getTotalCount());
+        assertEquals(3, index.getOffset(1));
+        assertEquals(7, index.getOffset(2));
+        assertEquals(12, index.getOffset(4));
+        assertEquals(1, index.findChild(6));
+        assertEquals(2, index.findChild(7));
+
+        index.setCount(2, 0);
+        assertEquals(9, index.getTotalCount());
+        assertEquals(4, index.findChild(7));
+    }
+
+    @Test
+    public void insertShiftsFollowingChildren() {
+        index.insert(1, 4);
+        assertEquals(6, index.size());
+        assertEquals(14, index.getTotalCount());
+        assertEquals(3, index.getOffset(1));
+        assertEquals(4, index.getCount(1));
+        assertEquals(7, index.getOffset(2));
+        assertEquals(12, index.getOffset(5));
+        assertEquals(1, index.findChild(3));
+
+        index.insert(6, 1);
+        assertEquals(14, index.getOffset(6));
+        assertEquals(6, index.findChild(14));
+    }
+
+    @Test
+    public void removeShiftsFollowingChildren() {
+        assertEquals(5, index.remove(2));
+        assertEquals(4, index.size());
+        assertEquals(5, index.getTotalCount());
+        assertEquals(3, index.getOffset(2));
+        assertEquals(3, index.findChild(3));
+
+        assertEquals(3, index.remove(0));
+        assertEquals(0, index.getOffset(2));
+        assertEquals(2, index.findChild(0));
+    }
+
+    @Test
+    public void moveReordersChildren() {
+        // Counts 3, 0, 5, 0, 2 become 0, 5, 0, 3, 2 and then 2, 0, 5, 0, 3.
+        index.move(0, 3);
+        index.move(4, 0);
+        assertEquals(10, index.getTotalCount());
+        int[] expectedCounts = {2, 0, 5, 0, 3};
+        int offset = 0;
+        for (int i = 0; i < expectedCounts.length; i++) {
+            assertEquals(expectedCounts[i], index.getCount(i));
+            assertEquals(offset, index.getOffset(i));
+            offset += expectedCounts[i];
+        }
+        assertEquals(2, index.findChild(2));
+        assertEquals(4, index.findChild(9));
+    }
+
+    @Test
+    public void slotsResolveOutsideTheChildItems() {
+        // Counts 3, 0, 5, 0, 2; child 1 gets a header and footer, child 2 a header.
+        index.setSlots(1, 1, 1);
+        index.setSlots(2, 1, 0);
+        assertEquals(13, index.getTotalCount());
+        assertEquals(3, index.getOffset(1));
+        assertEquals(4, index.getItemOffset(1));
+        assertEquals(2, index.getSpan(1));
+        assertEquals(5, index.getOffset(2));
+        assertEquals(6, index.getItemOffset(2));
+
+        assertEquals(-1, OffsetIndex.relativePositionOf(index.resolve(3)));
+        assertEquals(1, OffsetIndex.childIndexOf(index.resolve(4)));
+        assertEquals(0, OffsetIndex.relativePositionOf(index.resolve(4)));
+        assertEquals(-1, OffsetIndex.relativePositionOf(index.resolve(5)));
+        assertEquals(2, OffsetIndex.childIndexOf(index.resolve(5)));
+        assertEquals(4, OffsetIndex.relativePositionOf(index.resolve(10)));
+    }
+
+    @Test
+    public void slotsMoveAndRemoveWithTheirChild() {
+        index.setSlots(0, 1, 1);
+        index.move(0, 4);
+        assertEquals(1, index.getLeadingSlots(4));
+        assertEquals(1, index.getTrailingSlots(4));
+        assertEquals(0, index.getLeadingSlots(0));
+        assertEquals(7, index.getOffset(4));
+        assertEquals(8, index.getItemOffset(4));
+
+        assertEquals(5, index.remove(4));
+        assertEquals(7, index.getTotalCount());
+        index.insert(0, 1);
+        assertEquals(0, index.getLeadingSlots(0));
+    }
+
+    @Test
+    public void growsPastDefaultCapacity() {
+        OffsetIndex large = new OffsetIndex();
+        for (int i = 0; i < 100; i++) {
+            large.add(i);
+        }
+        assertEquals(4950, large.getTotalCount());
+        assertEquals(99, large.findChild(4949));
+        assertEquals(1, large.findChild(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void findChildRejectsPositionPastEnd() {
+        index.findChild(10);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void findChildRejectsNegativePosition() {
+        index.findChild(-1);
+    }
+}
@@ -0,0 +1,230 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PageTrackerTest {
+
+    @Test
+    public void pagesAroundPositionCoverPrefetchDistance() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 100);
+
+        assertEquals(0, tracker.getFirstPageAround(3));
+        assertEquals(0, tracker.getLastPageAround(3));
+        assertEquals(1, tracker.getFirstPageAround(17));
+        assertEquals(2, tracker.getLastPageAround(17));
+        assertEquals(9, tracker.getLastPageAround(98));
+    }
+
+    @Test
+    public void lastPageAroundStopsAtItemCount() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 12);
+
+        assertEquals(1, tracker.getLastPageAround(11));
+        assertEquals(0, new PageTracker(10, 5, 2, 0).getLastPageAround(0));
+    }
+
+    @Test
+    public void nearbyPositionsLoadFirstOrLastPage() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 25);
+
+        assertEquals(0, tracker.getNearbyPage(-1));
+        assertEquals(0, tracker.getNearbyPage(-5));
+        assertEquals(-1, tracker.getNearbyPage(-6));
+        assertEquals(2, tracker.getNearbyPage(25));
+        assertEquals(2, tracker.getNearbyPage(29));
+        assertEquals(-1, tracker.getNearbyPage(30));
+        assertEquals(-1, new PageTracker(10, 5, 2, 0).getNearbyPage(0));
+    }
+
+    @Test
+    public void pageIsRequestedOnce() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 100);
+
+        int token = tracker.request(3);
+        assertNotEquals(PageTracker.NO_REQUEST, token);
+        assertEquals(PageTracker.NO_REQUEST, tracker.request(3));
+        assertTrue(tracker.onPageLoaded(3, token));
+        assertTrue(tracker.isLoaded(3));
+        assertEquals(PageTracker.NO_REQUEST, tracker.request(3));
+    }
+
+    @Test
+    public void failedPageCanBeRequestedAgain() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 100);
+
+        int token = tracker.request(3);
+        tracker.onPageFailed(3, token);
+
+        assertFalse(tracker.isLoaded(3));
+        assertNotEquals(PageTracker.NO_REQUEST, tracker.request(3));
+    }
+
+    @Test
+    public void shortPageEndsTheList() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 100);
+
+        assertEquals(27, tracker.onPageCounted(2, 7, -1));
+        assertEquals(27, tracker.getItemCount());
+    }
+
+    @Test
+    public void fullPageGrowsCountPastEstimate() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 15);
+
+        assertEquals(20, tracker.onPageCounted(1, 10, -1));
+        assertEquals(20, tracker.onPageCounted(0, 10, -1));
+    }
+
+    @Test
+    public void reportedTotalReplacesEstimate() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 100);
+
+        assertEquals(42, tracker.onPageCounted(0, 10, 42));
+    }
+
+    @Test
+    public void placeholdersShownBeforeLoadAreRebound() {
+        PageTracker tracker = new PageTracker(10, 5, 2, 15);
+
+        // Estimated 15, page 1 turns out to hold 10 items: 5 placeholders existed.
+        tracker.onPageCounted(1, 10, -1);
+        assertEquals(5, tracker.getPlaceholderCount(1, 10, 15));
+
+        // A page beyond the old count had no placeholders.
+        tracker.onPageCounted(2, 10, -1);
+        assertEquals(0, tracker.getPlaceholderCount(2, 10, 20));
+
+        // The list shrinks to 23: only the placeholders which remain are rebound.
+        tracker.onPageCounted(2, 3, -1);
+        assertEquals(3, tracker.getPlaceholderCount(2, 3, 30));
+    }
+
+    @Test
+    public void distantLoadedPagesAreReleased() {
+        PageTracker tracker = new PageTracker(10, 0, 1, 100);
+        load(tracker, 0);
+        load(tracker, 1);
+        load(tracker, 2);
+        List<Integer> released = new ArrayList<>();
+
+        tracker.onPositionBound(25, recordingReleaser(released));
+
+        assertEquals(1, released.size());
+        assertEquals(0, (int) released.get(0));
+        assertFalse(tracker.isLoaded(0));
+        assertTrue(tracker.isLoaded(1));
+        assertTrue(tracker.isLoaded(2));
+    }
+
+    @Test
+    public void prefetchedPagesAreRetainedBeyondRetainDistance() {
+        // Prefetching 25 items spans 3 pages each way, more than the retain distance of 1.
+        PageTracker tracker = new PageTracker(10, 25, 1, 100);
+        for (int page = tracker.getFirstPageAround(55); page <= tracker.getLastPageAround(55); page++) {
+            load(tracker, page);
+        }
+        load(tracker, 0);
+        List<Integer> released = new ArrayList<>();
+
+        tracker.onPositionBound(55, recordingReleaser(released));
+
+        assertEquals(1, released.size());
+        assertEquals(0, (int) released.get(0));
+        for (int page = 3; page <= 8; page++) {
+            assertTrue(tracker.isLoaded(page));
+        }
+    }
+
+    @Test
+    public void releasingOnlyHappensWhenBoundPageChanges() {
+        PageTracker tracker = new PageTracker(10, 0, 0, 100);
+        List<Integer> released = new ArrayList<>();
+        tracker.onPositionBound(5, recordingReleaser(released));
+        load(tracker, 3);
+
+        tracker.onPositionBound(6, recordingReleaser(released));
+        assertTrue(released.isEmpty());
+
+        tracker.onPositionBound(15, recordingReleaser(released));
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void resultOfReleasedRequestIsDiscarded() {
+        PageTracker tracker = new PageTracker(10, 0, 1, 100);
+        int token = tracker.request(0);
+        List<Integer> released = new ArrayList<>();
+
+        tracker.onPositionBound(55, recordingReleaser(released));
+
+        // Nothing was loaded, so there is nothing to drop, but the request is forgotten.
+        assertTrue(released.isEmpty());
+        assertFalse(tracker.onPageLoaded(0, token));
+        assertFalse(tracker.isLoaded(0));
+    }
+
+    @Test
+    public void resultOfReleasedRequestIsDiscardedAfterRerequest() {
+        PageTracker tracker = new PageTracker(10, 0, 1, 100);
+        int stale = tracker.request(0);
+        tracker.onPositionBound(55, recordingReleaser(new ArrayList<Integer>()));
+        tracker.onPositionBound(5, recordingReleaser(new ArrayList<Integer>()));
+        int current = tracker.request(0);
+
+        assertFalse(tracker.onPageLoaded(0, stale));
+        tracker.onPageFailed(0, stale);
+        assertFalse(tracker.isLoaded(0));
+        assertTrue(tracker.onPageLoaded(0, current));
+    }
+
+    @Test
+    public void resetDiscardsRequestsInFlight() {
+        PageTracker tracker = new PageTracker(10, 0, 1, 100);
+        int token = tracker.request(0);
+        load(tracker, 1);
+
+        tracker.reset(30);
+
+        assertEquals(30, tracker.getItemCount());
+        assertFalse(tracker.isLoaded(1));
+        assertFalse(tracker.onPageLoaded(0, token));
+        assertNotEquals(PageTracker.NO_REQUEST, tracker.request(0));
+    }
+
+    @Test
+    public void manyPagesAreTrackedInOrder() {
+        PageTracker tracker = new PageTracker(1, 0, 1000, 1000);
+        for (int page = 99; page >= 0; page--) {
+            load(tracker, page * 3);
+        }
+        for (int page = 0; page < 300; page++) {
+            assertEquals(page % 3 == 0, tracker.isLoaded(page));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSizeMustBePositive() {
+        new PageTracker(0, 5, 2, 100);
+    }
+
+    private static void load(PageTracker tracker, int pageIndex) {
+        assertTrue(tracker.onPageLoaded(pageIndex, tracker.request(pageIndex)));
+    }
+
+    private static PageTracker.Releaser recordingReleaser(final List<Integer> released) {
+        return new PageTracker.Releaser() {
+            @Override
+            public void releasePage(int pageIndex) {
+                released.add(pageIndex);
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PositionSnapshotTest {
+
+    private OffsetIndex offsetIndex;
+    private ViewTypeTable<String> viewTypeTable;
+
+    @Before
+    public void setUp() {
+        offsetIndex = new OffsetIndex();
+        offsetIndex.add(3);
+        offsetIndex.add(0);
+        offsetIndex.add(2);
+        viewTypeTable = new ViewTypeTable<>();
+        viewTypeTable.getGlobalType(0, "a", 7);
+        viewTypeTable.getGlobalType(2, "c", 7);
+    }
+
+    @Test
+    public void resolvesPositionsLikeTheIndex() {
+        PositionSnapshot<String> snapshot = PositionSnapshot.create(4, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable);
+
+        assertEquals(4, snapshot.getVersion());
+        assertEquals(5, snapshot.getItemCount());
+        assertEquals(3, snapshot.getChildCount());
+        for (int position = 0; position < 5; position++) {
+            assertEquals(offsetIndex.findChild(position), snapshot.findChild(position));
+        }
+        assertEquals("c", snapshot.getChild(snapshot.findChild(4)));
+        assertEquals(3, snapshot.getChildOffset(2));
+        assertEquals(0, snapshot.getChildItemCount(1));
+    }
+
+    @Test
+    public void mapsViewTypes() {
+        PositionSnapshot<String> snapshot = PositionSnapshot.create(0, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable);
+
+        assertSame("c", snapshot.getViewTypeOwner(1));
+        assertEquals(7, snapshot.getLocalViewType(1));
+    }
+
+    @Test
+    public void isNotAffectedByLaterChanges() {
+        PositionSnapshot<String> snapshot = PositionSnapshot.create(0, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable);
+        offsetIndex.setCount(0, 10);
+        offsetIndex.remove(2);
+        viewTypeTable.release(0);
+
+        assertEquals(5, snapshot.getItemCount());
+        assertEquals(2, snapshot.findChild(3));
+        assertSame("a", snapshot.getViewTypeOwner(0));
+    }
+
+    @Test
+    public void slotsResolveOutsideTheChildItems() {
+        offsetIndex.setSlots(1, 1, 1);
+        PositionSnapshot<String> snapshot = PositionSnapshot.create(0, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable);
+
+        assertEquals(7, snapshot.getItemCount());
+        assertEquals(1, snapshot.findChild(3));
+        assertEquals(1, snapshot.findChild(4));
+        assertEquals(4, snapshot.getChildOffset(1));
+        assertEquals(0, snapshot.getChildItemCount(1));
+        assertEquals(2, snapshot.findChild(5));
+        assertEquals(5, snapshot.getChildOffset(2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void positionBeyondSnapshotIsRejected() {
+        PositionSnapshot.create(0, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable).findChild(5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void viewTypeUnknownToSnapshotIsRejected() {
+        PositionSnapshot<String> snapshot = PositionSnapshot.create(0, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable);
+        viewTypeTable.getGlobalType(1, "b", 0);
+        snapshot.getLocalViewType(2);
+    }
+
+    @Test
+    public void readersSeeConsistentSnapshotsWhileWriterPublishes() throws InterruptedException {
+        final AtomicReference<PositionSnapshot<String>> published = new AtomicReference<>(
+                PositionSnapshot.create(0, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable));
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 100000; i++) {
+                        PositionSnapshot<String> snapshot = published.get();
+                        int last = snapshot.getItemCount() - 1;
+                        int childIndex = snapshot.findChild(last);
+                        assertEquals(last, snapshot.getChildOffset(childIndex) + snapshot.getChildItemCount(childIndex) - 1);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 1000; i++) {
+            offsetIndex.setCount(i % 3, 1 + i % 5);
+            published.set(PositionSnapshot.create(i, Arrays.asList("a", "b", "c"), offsetIndex, viewTypeTable));
+        }
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(1000, published.get().getVersion());
+    }
+}
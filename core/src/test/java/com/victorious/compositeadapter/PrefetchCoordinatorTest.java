@@ -0,0 +1,99 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrefetchCoordinatorTest {
+
+    private OffsetIndex offsetIndex;
+    private List<String> children;
+    private PrefetchCoordinator<String> coordinator;
+    private RecordingTarget target;
+
+    @Before
+    public void setUp() {
+        offsetIndex = new OffsetIndex();
+        children = new ArrayList<>(Arrays.asList("a", "b", "c", "d"));
+        for (int count : new int[]{5, 0, 10, 3}) {
+            offsetIndex.add(count);
+        }
+        coordinator = new PrefetchCoordinator<>();
+        target = new RecordingTarget();
+    }
+
+    @Test
+    public void rangeIsSplitIntoRelativeRanges() {
+        coordinator.setRange(3, 14, offsetIndex, children, target);
+
+        assertEquals(Arrays.asList("range a 3+2", "range c 0+10", "range d 0+2"), target.events);
+    }
+
+    @Test
+    public void rangeIsClippedToTheItems() {
+        coordinator.setRange(-4, 6, offsetIndex, children, target);
+        coordinator.setRange(16, 100, offsetIndex, children, target);
+
+        assertEquals(Arrays.asList("range a 0+2", "range d 1+2", "cancel a"), target.events);
+    }
+
+    @Test
+    public void childrenLeftBehindAreCancelledOnce() {
+        coordinator.setRange(0, 6, offsetIndex, children, target);
+        target.events.clear();
+        coordinator.setRange(6, 4, offsetIndex, children, target);
+        coordinator.setRange(7, 4, offsetIndex, children, target);
+
+        assertEquals(Arrays.asList("range c 1+4", "cancel a", "range c 2+4"), target.events);
+    }
+
+    @Test
+    public void cancellationFollowsMovedChildren() {
+        coordinator.setRange(0, 2, offsetIndex, children, target);
+        offsetIndex.move(0, 3);
+        children.add(3, children.remove(0));
+        target.events.clear();
+        coordinator.setRange(13, 3, offsetIndex, children, target);
+
+        assertEquals(Arrays.asList("range a 0+3"), target.events);
+    }
+
+    @Test
+    public void slotsAreNotPrefetched() {
+        offsetIndex.setSlots(0, 1, 1);
+        offsetIndex.setSlots(1, 1, 0);
+        coordinator.setRange(6, 3, offsetIndex, children, target);
+
+        assertEquals(Arrays.asList("range c 0+1"), target.events);
+    }
+
+    @Test
+    public void cancelCancelsEveryActiveChild() {
+        coordinator.setRange(0, 18, offsetIndex, children, target);
+        target.events.clear();
+        coordinator.cancel(target);
+        coordinator.cancel(target);
+
+        assertEquals(Arrays.asList("cancel a", "cancel c", "cancel d"), target.events);
+    }
+
+    private static final class RecordingTarget implements PrefetchCoordinator.Target<String> {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onPrefetchRange(String child, int positionStart, int itemCount) {
+            events.add("range " + child + " " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onPrefetchCancelled(String child) {
+            events.add("cancel " + child);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SlotTypesTest {
+
+    private ViewTypeTable<Object> table;
+    private SlotTypes slotTypes;
+
+    @Before
+    public void setUp() {
+        table = new ViewTypeTable<>();
+        slotTypes = new SlotTypes(table);
+    }
+
+    @Test
+    public void slotClassesGetNegativeOwnerIds() {
+        int header = slotTypes.getOwnerId(HeaderSlot.class);
+        int footer = slotTypes.getOwnerId(FooterSlot.class);
+
+        assertTrue(header < 0);
+        assertTrue(footer < 0);
+        assertNotEquals(header, footer);
+        assertEquals(header, slotTypes.getOwnerId(HeaderSlot.class));
+    }
+
+    @Test
+    public void instancesOfOneClassWithDifferentViewTypesCreateOnlyTheirOwn() {
+        HeaderSlot small = new HeaderSlot(1);
+        HeaderSlot large = new HeaderSlot(2);
+        int smallType = register(small);
+        int largeType = register(large);
+
+        assertNotEquals(smallType, largeType);
+        assertTrue(slotTypes.canCreate(small, small.viewType, smallType));
+        assertTrue(slotTypes.canCreate(large, large.viewType, largeType));
+        assertFalse(slotTypes.canCreate(small, small.viewType, largeType));
+        assertFalse(slotTypes.canCreate(large, large.viewType, smallType));
+    }
+
+    @Test
+    public void instancesOfOneClassWithTheSameViewTypeShareIt() {
+        HeaderSlot first = new HeaderSlot(1);
+        HeaderSlot second = new HeaderSlot(1);
+
+        assertEquals(register(first), register(second));
+        assertTrue(slotTypes.canCreate(second, 1, register(first)));
+    }
+
+    @Test
+    public void slotsOfAnotherClassDoNotCreate() {
+        HeaderSlot header = new HeaderSlot(1);
+        FooterSlot footer = new FooterSlot(1);
+        int headerType = register(header);
+        int footerType = table.getGlobalType(slotTypes.getOwnerId(FooterSlot.class), FooterSlot.class, footer.viewType);
+
+        assertNotEquals(headerType, footerType);
+        assertFalse(slotTypes.canCreate(footer, footer.viewType, headerType));
+    }
+
+    @Test
+    public void childViewTypesAreNotSlotTypes() {
+        int childType = table.getGlobalType(0, "child", 1);
+        int headerType = register(new HeaderSlot(1));
+
+        assertFalse(slotTypes.isSlotType(childType));
+        assertTrue(slotTypes.isSlotType(headerType));
+        assertFalse(slotTypes.canCreate(new HeaderSlot(1), 1, childType));
+    }
+
+    private int register(HeaderSlot slot) {
+        return table.getGlobalType(slotTypes.getOwnerId(slot.getClass()), slot.getClass(), slot.viewType);
+    }
+
+    private static class HeaderSlot {
+        private final int viewType;
+
+        private HeaderSlot(int viewType) {
+            this.viewType = viewType;
+        }
+    }
+
+    private static class FooterSlot {
+        private final int viewType;
+
+        private FooterSlot(int viewType) {
+            this.viewType = viewType;
+        }
+    }
+}
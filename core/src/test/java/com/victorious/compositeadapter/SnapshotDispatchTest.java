@@ -0,0 +1,175 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays the callbacks DiffUtil dispatches for snapshot updates, the way the child adapters
+ * forward them to the composite, inside one transaction as applySnapshots() does, and checks the
+ * notifications the composite emits. DiffUtil dispatches from the end of the list to the start.
+ */
+public class SnapshotDispatchTest {
+
+    private OffsetIndex offsetIndex;
+    private UpdateTranslator translator;
+    private List<String> events;
+
+    @Before
+    public void setUp() {
+        offsetIndex = new OffsetIndex();
+        events = new ArrayList<>();
+        translator = new UpdateTranslator(offsetIndex, new RecordingCallback());
+        // Child 0 holds positions 0..1, child 1 positions 2..4.
+        translator.onChildInserted(0, 2);
+        translator.onChildInserted(1, 3);
+        events.clear();
+    }
+
+    @Test
+    public void insertDiff() {
+        translator.beginTransaction();
+        diffOf(1).onInserted(1, 2);
+        translator.commitTransaction();
+
+        assertEvents("inserted 3,2");
+        assertEquals(7, offsetIndex.getTotalCount());
+    }
+
+    @Test
+    public void removeDiffs() {
+        translator.beginTransaction();
+        diffOf(0).onRemoved(0, 1);
+        diffOf(1).onRemoved(2, 1);
+        translator.commitTransaction();
+
+        assertEvents("removed 0,1", "removed 3,1");
+        assertEquals(3, offsetIndex.getTotalCount());
+    }
+
+    @Test
+    public void moveDiff() {
+        translator.beginTransaction();
+        diffOf(1).onMoved(2, 0);
+        translator.commitTransaction();
+
+        assertEvents("moved 4,2");
+    }
+
+    @Test
+    public void changeDiffsWithSamePayloadAreMerged() {
+        translator.beginTransaction();
+        diffOf(0).onChanged(0, 2, "name");
+        diffOf(1).onChanged(0, 1, "name");
+        translator.commitTransaction();
+
+        assertEvents("changed 0,3 name");
+    }
+
+    @Test
+    public void changeDiffsWithDifferentPayloadsAreKeptApart() {
+        translator.beginTransaction();
+        diffOf(0).onChanged(1, 1, "name");
+        diffOf(1).onChanged(0, 1, "avatar");
+        translator.commitTransaction();
+
+        assertEvents("changed 1,1 name", "changed 2,1 avatar");
+    }
+
+    @Test
+    public void replacedFirstItemIsInsertedThenRemoved() {
+        // [c, d, e] -> [d, e, f]: DiffUtil reports the trailing insert first.
+        translator.beginTransaction();
+        diffOf(1).onInserted(3, 1);
+        diffOf(1).onRemoved(0, 1);
+        translator.commitTransaction();
+
+        assertEvents("inserted 5,1", "removed 2,1");
+        assertEquals(5, offsetIndex.getTotalCount());
+    }
+
+    @Test
+    public void diffsOfSeveralChildrenLandInTheirOwnRanges() {
+        translator.beginTransaction();
+        diffOf(0).onInserted(2, 1);
+        diffOf(1).onRemoved(1, 2);
+        diffOf(1).onChanged(0, 1, null);
+        translator.commitTransaction();
+
+        assertEvents("inserted 2,1", "removed 4,2", "changed 3,1");
+        assertEquals(4, offsetIndex.getTotalCount());
+    }
+
+    private ChildDiff diffOf(int childIndex) {
+        return new ChildDiff(childIndex);
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+    }
+
+    /**
+     * Forwards DiffUtil's ListUpdateCallback calls for one child, as the child's notifications do.
+     */
+    private class ChildDiff {
+        private final int childIndex;
+
+        private ChildDiff(int childIndex) {
+            this.childIndex = childIndex;
+        }
+
+        private void onInserted(int position, int count) {
+            translator.onChildItemRangeInserted(childIndex, position, count);
+        }
+
+        private void onRemoved(int position, int count) {
+            translator.onChildItemRangeRemoved(childIndex, position, count);
+        }
+
+        private void onMoved(int fromPosition, int toPosition) {
+            translator.onChildItemRangeMoved(childIndex, fromPosition, toPosition, 1);
+        }
+
+        private void onChanged(int position, int count, Object payload) {
+            translator.onChildItemRangeChanged(childIndex, position, count, payload);
+        }
+    }
+
+    private class RecordingCallback implements UpdateBatch.Callback {
+
+        @Override
+        public void onDataSetChanged() {
+            events.add("dataSetChanged");
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            events.add("changed " + positionStart + "," + itemCount + (payload != null ? " " + payload : ""));
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("inserted " + positionStart + "," + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("removed " + positionStart + "," + itemCount);
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            events.add("moved " + fromPosition + "," + toPosition);
+        }
+
+        @Override
+        public void onStructureChanged() {
+            events.add("structureChanged");
+        }
+    }
+}
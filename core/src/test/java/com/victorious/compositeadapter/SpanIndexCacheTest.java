@@ -0,0 +1,100 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpanIndexCacheTest {
+
+    private static final int SPAN_COUNT = 4;
+
+    @Test
+    public void matchesGridLayoutManagerDefaults() {
+        Random random = new Random(7);
+        final int[] spanSizes = new int[500];
+        for (int i = 0; i < spanSizes.length; i++) {
+            spanSizes[i] = 1 + random.nextInt(SPAN_COUNT);
+        }
+        SpanIndexCache.SpanSizeSource source = new ArraySource(spanSizes);
+        SpanIndexCache cache = new SpanIndexCache();
+
+        // Ask out of order so both the fill and the cached reads are exercised.
+        for (int i = 0; i < 2000; i++) {
+            int position = random.nextInt(spanSizes.length);
+            assertEquals(referenceSpanIndex(spanSizes, position), cache.getSpanIndex(position, SPAN_COUNT, source));
+            assertEquals(referenceSpanGroupIndex(spanSizes, position), cache.getSpanGroupIndex(position, SPAN_COUNT, source));
+        }
+    }
+
+    @Test
+    public void invalidateRereadsSpanSizes() {
+        int[] spanSizes = {1, 1, 1, 1, 1};
+        SpanIndexCache cache = new SpanIndexCache();
+        assertEquals(0, cache.getSpanIndex(4, SPAN_COUNT, new ArraySource(spanSizes)));
+
+        spanSizes[0] = 2;
+        cache.invalidate();
+        assertEquals(1, cache.getSpanIndex(4, SPAN_COUNT, new ArraySource(spanSizes)));
+        assertEquals(1, cache.getSpanGroupIndex(3, SPAN_COUNT, new ArraySource(spanSizes)));
+    }
+
+    @Test
+    public void changingSpanCountStartsOver() {
+        int[] spanSizes = {1, 1, 1};
+        SpanIndexCache cache = new SpanIndexCache();
+        assertEquals(2, cache.getSpanIndex(2, SPAN_COUNT, new ArraySource(spanSizes)));
+        assertEquals(0, cache.getSpanIndex(2, 2, new ArraySource(spanSizes)));
+        assertEquals(1, cache.getSpanGroupIndex(2, 2, new ArraySource(spanSizes)));
+    }
+
+    // GridLayoutManager.SpanSizeLookup.getSpanIndex() without its cache.
+    private static int referenceSpanIndex(int[] spanSizes, int position) {
+        int positionSpanSize = spanSizes[position];
+        if (positionSpanSize == SPAN_COUNT) return 0;
+        int span = 0;
+        for (int i = 0; i < position; i++) {
+            int size = spanSizes[i];
+            span += size;
+            if (span == SPAN_COUNT) {
+                span = 0;
+            } else if (span > SPAN_COUNT) {
+                span = size;
+            }
+        }
+        return span + positionSpanSize <= SPAN_COUNT ? span : 0;
+    }
+
+    // GridLayoutManager.SpanSizeLookup.getSpanGroupIndex().
+    private static int referenceSpanGroupIndex(int[] spanSizes, int position) {
+        int span = 0;
+        int group = 0;
+        for (int i = 0; i < position; i++) {
+            int size = spanSizes[i];
+            span += size;
+            if (span == SPAN_COUNT) {
+                span = 0;
+                group++;
+            } else if (span > SPAN_COUNT) {
+                span = size;
+                group++;
+            }
+        }
+        return span + spanSizes[position] > SPAN_COUNT ? group + 1 : group;
+    }
+
+    private static final class ArraySource implements SpanIndexCache.SpanSizeSource {
+
+        private final int[] spanSizes;
+
+        private ArraySource(int[] spanSizes) {
+            this.spanSizes = spanSizes;
+        }
+
+        @Override
+        public int getSpanSize(int position) {
+            return spanSizes[position];
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StableIdsTest {
+
+    @Test
+    public void sameItemIdInDifferentChildrenDoesNotCollide() {
+        assertNotEquals(StableIds.combine(0, 42), StableIds.combine(1, 42));
+    }
+
+    @Test
+    public void idsAreUniqueAcrossNamespaces() {
+        Set<Long> ids = new HashSet<>();
+        long[] itemIds = {0, 1, 2, 1000, (1L << 32) + 5, (1L << StableIds.ITEM_ID_BITS) - 1};
+        int[] namespaces = {0, 1, 7, 300, StableIds.MAX_NAMESPACE};
+        for (int namespace : namespaces) {
+            for (long itemId : itemIds) {
+                assertTrue(ids.add(StableIds.combine(namespace, itemId)));
+            }
+        }
+    }
+
+    @Test
+    public void namespaceCanBeRecovered() {
+        assertEquals(300, StableIds.namespaceOf(StableIds.combine(300, 123456789L)));
+        assertEquals(StableIds.MAX_NAMESPACE, StableIds.namespaceOf(StableIds.combine(StableIds.MAX_NAMESPACE, 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void namespaceOutOfRangeIsRejected() {
+        StableIds.combine(StableIds.MAX_NAMESPACE + 1, 0);
+    }
+}
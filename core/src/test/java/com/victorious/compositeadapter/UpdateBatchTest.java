@@ -0,0 +1,181 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UpdateBatchTest {
+
+    private UpdateBatch batch;
+    private RecordingCallback callback;
+
+    @Before
+    public void setUp() {
+        batch = new UpdateBatch();
+        callback = new RecordingCallback();
+        batch.begin();
+    }
+
+    @Test
+    public void adjacentInsertsAreMerged() {
+        batch.addInserted(5, 2);
+        batch.addInserted(7, 3);
+        batch.addInserted(5, 1);
+        dispatch();
+        assertEvents("inserted 5,6");
+    }
+
+    @Test
+    public void insertBeforePreviousBlockIsNotMerged() {
+        batch.addInserted(5, 2);
+        batch.addInserted(3, 2);
+        dispatch();
+        assertEvents("inserted 5,2", "inserted 3,2");
+    }
+
+    @Test
+    public void adjacentRemovesAreMerged() {
+        batch.addRemoved(5, 2);
+        batch.addRemoved(5, 3);
+        batch.addRemoved(3, 2);
+        dispatch();
+        assertEvents("removed 3,7");
+    }
+
+    @Test
+    public void overlappingAndAdjacentChangesAreMerged() {
+        batch.addChanged(10, 5, null);
+        batch.addChanged(12, 6, null);
+        batch.addChanged(6, 4, null);
+        dispatch();
+        assertEvents("changed 6,12");
+    }
+
+    @Test
+    public void changesWithDifferentPayloadsAreNotMerged() {
+        batch.addChanged(0, 2, "likes");
+        batch.addChanged(2, 2, "likes");
+        batch.addChanged(4, 2, "receipts");
+        batch.addChanged(6, 2, null);
+        dispatch();
+        assertEvents("changed 0,4 likes", "changed 4,2 receipts", "changed 6,2");
+    }
+
+    @Test
+    public void distinctKindsAreKeptInOrder() {
+        batch.addChanged(0, 2, null);
+        batch.addInserted(4, 1);
+        batch.addChanged(20, 1, null);
+        batch.addRemoved(9, 1);
+        batch.addMoved(3, 7);
+        batch.addMoved(4, 8);
+        dispatch();
+        assertEvents("changed 0,2", "inserted 4,1", "changed 20,1", "removed 9,1", "moved 3,7", "moved 4,8");
+    }
+
+    @Test
+    public void dataSetChangedSwallowsEverything() {
+        batch.addInserted(0, 1);
+        batch.addDataSetChanged();
+        batch.addRemoved(3, 1);
+        dispatch();
+        assertEvents("dataSetChanged");
+    }
+
+    @Test
+    public void onlyOutermostEndDispatches() {
+        batch.begin();
+        assertFalse(batch.end());
+        assertTrue(batch.isBatching());
+        assertTrue(batch.end());
+        assertFalse(batch.isBatching());
+    }
+
+    @Test
+    public void structureChangeIsDispatchedOnItsOwn() {
+        batch.addStructureChanged();
+        batch.addStructureChanged();
+        dispatch();
+        assertEvents("structureChanged");
+    }
+
+    @Test
+    public void structureChangeIsCoveredByOtherUpdates() {
+        batch.addStructureChanged();
+        batch.addInserted(2, 1);
+        dispatch();
+        assertEvents("inserted 2,1");
+
+        batch.begin();
+        batch.addStructureChanged();
+        batch.addDataSetChanged();
+        dispatch();
+        assertEvents("inserted 2,1", "dataSetChanged");
+    }
+
+    @Test
+    public void structureChangeIsClearedByDispatch() {
+        batch.addStructureChanged();
+        batch.addDataSetChanged();
+        dispatch();
+        batch.begin();
+        dispatch();
+        assertEvents("dataSetChanged");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unbalancedEndIsRejected() {
+        batch.end();
+        batch.end();
+    }
+
+    private void dispatch() {
+        assertTrue(batch.end());
+        batch.dispatch(callback);
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), callback.events);
+    }
+
+    private static class RecordingCallback implements UpdateBatch.Callback {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onDataSetChanged() {
+            events.add("dataSetChanged");
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            events.add("changed " + positionStart + "," + itemCount + (payload != null ? " " + payload : ""));
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("inserted " + positionStart + "," + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("removed " + positionStart + "," + itemCount);
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            events.add("moved " + fromPosition + "," + toPosition);
+        }
+
+        @Override
+        public void onStructureChanged() {
+            events.add("structureChanged");
+        }
+    }
+}
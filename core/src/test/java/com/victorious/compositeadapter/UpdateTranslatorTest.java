@@ -0,0 +1,414 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays long random sequences of child inserts, removes, moves and changes, as well as header
+ * and footer slot changes, through an UpdateTranslator and checks that the translated
+ * notifications, the offset index and the view type cache all stay consistent with the children.
+ */
+public class UpdateTranslatorTest {
+
+    private static final int CHILD_COUNT = 6;
+    private static final int OPERATIONS = 5000;
+
+    private List<List<Integer>> children;
+    // Per child header and footer slot, null when the child has none. A slot keeps its item when
+    // replaced, since replacing it only reports a change.
+    private List<Integer> headers;
+    private List<Integer> footers;
+    private List<Integer> flattened;
+    private OffsetIndex offsetIndex;
+    private ViewTypeCache viewTypeCache;
+    private UpdateTranslator translator;
+    private int nextItem;
+    // Items created since the last consistency check are the only valid insert placeholders.
+    private int checkedItems;
+    private int dataSetChangedCount;
+    private int structureChangedCount;
+
+    @Before
+    public void setUp() {
+        children = new ArrayList<>();
+        headers = new ArrayList<>();
+        footers = new ArrayList<>();
+        flattened = new ArrayList<>();
+        offsetIndex = new OffsetIndex();
+        viewTypeCache = new ViewTypeCache(0);
+        translator = new UpdateTranslator(offsetIndex, new FlattenedListCallback());
+        translator.setViewTypeCache(viewTypeCache);
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            List<Integer> child = new ArrayList<>();
+            for (int j = 0; j < i * 2; j++) {
+                child.add(nextItem++);
+            }
+            children.add(child);
+            headers.add(null);
+            footers.add(null);
+            translator.onChildInserted(i, child.size());
+        }
+        assertConsistent();
+    }
+
+    @Test
+    public void singleItemMoveWithinChild() {
+        // Child 2 holds items 2..5 at absolute positions 2..5.
+        translator.onChildItemRangeMoved(2, 0, 3, 1);
+        moveInChild(2, 0, 3, 1);
+        assertConsistent();
+        assertEquals(asList(0, 1, 3, 4, 5, 2), flattened.subList(0, 6));
+    }
+
+    @Test
+    public void multiItemMoveForwardAndBackward() {
+        List<Integer> child = children.get(5);
+        translator.onChildItemRangeMoved(5, 1, 5, 3);
+        moveInChild(5, 1, 5, 3);
+        assertConsistent();
+
+        translator.onChildItemRangeMoved(5, 6, 0, 2);
+        moveInChild(5, 6, 0, 2);
+        assertConsistent();
+        assertEquals(10, child.size());
+    }
+
+    @Test
+    public void childInsertRemoveAndMove() {
+        List<Integer> child = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            child.add(nextItem++);
+        }
+        children.add(2, child);
+        headers.add(2, null);
+        footers.add(2, null);
+        translator.onChildInserted(2, child.size());
+        setHeader(4, true);
+        assertConsistent();
+
+        // A moved child is reported as a change over the span it crosses; mirror that here.
+        children.add(0, children.remove(4));
+        headers.add(0, headers.remove(4));
+        footers.add(0, footers.remove(4));
+        translator.onChildMoved(4, 0);
+        flattened.clear();
+        flattened.addAll(expectedList());
+        assertConsistent();
+
+        children.remove(3);
+        headers.remove(3);
+        footers.remove(3);
+        translator.onChildRemoved(3);
+        assertConsistent();
+    }
+
+    @Test
+    public void emptyChildChangesAreReportedAsStructureChanges() {
+        structureChangedCount = 0;
+        children.add(0, new ArrayList<Integer>());
+        headers.add(0, null);
+        footers.add(0, null);
+        translator.onChildInserted(0, 0);
+        assertEquals(1, structureChangedCount);
+
+        // Children 0 and 1 are both empty, so moving one across the other changes no position.
+        children.add(1, children.remove(0));
+        headers.add(1, headers.remove(0));
+        footers.add(1, footers.remove(0));
+        translator.onChildMoved(0, 1);
+        assertEquals(2, structureChangedCount);
+
+        children.remove(1);
+        headers.remove(1);
+        footers.remove(1);
+        translator.onChildRemoved(1);
+        assertEquals(3, structureChangedCount);
+        assertConsistent();
+    }
+
+    @Test
+    public void structureChangeInTransactionIsCoveredByOtherChanges() {
+        structureChangedCount = 0;
+        translator.beginTransaction();
+        children.remove(0);
+        headers.remove(0);
+        footers.remove(0);
+        translator.onChildRemoved(0);
+        children.get(0).remove(0);
+        translator.onChildItemRangeRemoved(0, 0, 1);
+        translator.commitTransaction();
+
+        assertEquals(0, structureChangedCount);
+        assertConsistent();
+    }
+
+    @Test
+    public void batchingLastsUntilOutermostCommit() {
+        assertFalse(translator.isBatching());
+        translator.beginTransaction();
+        translator.beginTransaction();
+        translator.commitTransaction();
+        assertTrue(translator.isBatching());
+        translator.commitTransaction();
+        assertFalse(translator.isBatching());
+    }
+
+    @Test
+    public void refreshOnlyReportsChangedCounts() {
+        // Child 2 holds items 2..5 at absolute positions 2..5.
+        viewTypeCache.put(3, 3);
+        translator.onChildRefreshed(2, 4);
+        assertEquals(0, dataSetChangedCount);
+        assertEquals(ViewTypeCache.UNKNOWN, viewTypeCache.get(3));
+
+        children.get(2).add(nextItem++);
+        translator.onChildRefreshed(2, 5);
+        assertEquals(1, dataSetChangedCount);
+        assertConsistent();
+    }
+
+    @Test
+    public void slotsSurroundTheChildItems() {
+        setHeader(2, true);
+        setFooter(2, true);
+        setFooter(0, true);
+        assertConsistent();
+
+        // Child 2's items now start after its header, at absolute position 3.
+        translator.onChildItemRangeRemoved(2, 0, 1);
+        children.get(2).remove(0);
+        assertConsistent();
+
+        setHeader(2, true);
+        setHeader(2, false);
+        setFooter(2, false);
+        assertConsistent();
+    }
+
+    @Test
+    public void scopedChildChangeStaysWithinTheChild() {
+        translator.setScopedChanges(true);
+        setHeader(3, true);
+        setFooter(3, true);
+        assertConsistent();
+
+        // Child 3 keeps its leading items, so only its appended and dropped items need reporting.
+        List<Integer> child = children.get(3);
+        child.add(nextItem++);
+        child.add(nextItem++);
+        translator.onChildChanged(3, child.size());
+        assertConsistent();
+
+        child.subList(2, child.size()).clear();
+        translator.onChildChanged(3, child.size());
+        assertConsistent();
+        assertEquals(0, dataSetChangedCount);
+    }
+
+    @Test
+    public void randomUpdatesStayConsistent() {
+        runRandomUpdates(new Random(7), false);
+    }
+
+    @Test
+    public void randomBatchedUpdatesStayConsistent() {
+        runRandomUpdates(new Random(11), true);
+    }
+
+    private void runRandomUpdates(Random random, boolean batched) {
+        for (int operation = 0; operation < OPERATIONS; ) {
+            int batchSize = batched ? 1 + random.nextInt(8) : 1;
+            if (batched) translator.beginTransaction();
+            for (int i = 0; i < batchSize; i++, operation++) {
+                applyRandomUpdate(random);
+            }
+            if (batched) translator.commitTransaction();
+            assertConsistent();
+        }
+    }
+
+    private void applyRandomUpdate(Random random) {
+        int childIndex = random.nextInt(children.size());
+        List<Integer> child = children.get(childIndex);
+        int size = child.size();
+        switch (random.nextInt(5)) {
+            case 0: {
+                int position = random.nextInt(size + 1);
+                int itemCount = 1 + random.nextInt(3);
+                for (int i = 0; i < itemCount; i++) {
+                    child.add(position + i, nextItem++);
+                }
+                translator.onChildItemRangeInserted(childIndex, position, itemCount);
+                break;
+            }
+            case 1: {
+                if (size == 0) return;
+                int position = random.nextInt(size);
+                int itemCount = 1 + random.nextInt(Math.min(3, size - position));
+                child.subList(position, position + itemCount).clear();
+                translator.onChildItemRangeRemoved(childIndex, position, itemCount);
+                break;
+            }
+            case 2: {
+                if (size < 2) return;
+                int itemCount = 1 + random.nextInt(Math.min(3, size - 1));
+                int from = random.nextInt(size - itemCount + 1);
+                int to = random.nextInt(size - itemCount + 1);
+                moveInChild(childIndex, from, to, itemCount);
+                translator.onChildItemRangeMoved(childIndex, from, to, itemCount);
+                break;
+            }
+            case 3: {
+                if (random.nextBoolean()) {
+                    setHeader(childIndex, random.nextBoolean());
+                } else {
+                    setFooter(childIndex, random.nextBoolean());
+                }
+                break;
+            }
+            default: {
+                if (size == 0) return;
+                int position = random.nextInt(size);
+                int itemCount = 1 + random.nextInt(size - position);
+                translator.onChildItemRangeChanged(childIndex, position, itemCount, null);
+                break;
+            }
+        }
+    }
+
+    private void setHeader(int childIndex, boolean present) {
+        if (present && headers.get(childIndex) == null) {
+            headers.set(childIndex, nextItem++);
+        } else if (!present) {
+            headers.set(childIndex, null);
+        }
+        translator.onChildLeadingSlotsChanged(childIndex, present ? 1 : 0);
+    }
+
+    private void setFooter(int childIndex, boolean present) {
+        if (present && footers.get(childIndex) == null) {
+            footers.set(childIndex, nextItem++);
+        } else if (!present) {
+            footers.set(childIndex, null);
+        }
+        translator.onChildTrailingSlotsChanged(childIndex, present ? 1 : 0);
+    }
+
+    private List<Integer> expectedList() {
+        List<Integer> expected = new ArrayList<>();
+        for (int childIndex = 0; childIndex < children.size(); childIndex++) {
+            if (headers.get(childIndex) != null) expected.add(headers.get(childIndex));
+            expected.addAll(children.get(childIndex));
+            if (footers.get(childIndex) != null) expected.add(footers.get(childIndex));
+        }
+        return expected;
+    }
+
+    private void moveInChild(int childIndex, int from, int to, int itemCount) {
+        List<Integer> child = children.get(childIndex);
+        List<Integer> block = new ArrayList<>(child.subList(from, from + itemCount));
+        child.subList(from, from + itemCount).clear();
+        child.addAll(to, block);
+    }
+
+    private void assertConsistent() {
+        List<Integer> expected = expectedList();
+        assertEquals(expected.size(), flattened.size());
+        for (int position = 0; position < expected.size(); position++) {
+            Integer item = flattened.get(position);
+            if (item == null) {
+                assertTrue("placeholder at " + position, expected.get(position) >= checkedItems);
+                flattened.set(position, expected.get(position));
+            } else {
+                assertEquals("item at " + position, expected.get(position), item);
+            }
+        }
+        checkedItems = nextItem;
+        assertEquals(expected.size(), offsetIndex.getTotalCount());
+        assertEquals(expected.size(), viewTypeCache.size());
+
+        int offset = 0;
+        for (int childIndex = 0; childIndex < children.size(); childIndex++) {
+            int size = children.get(childIndex).size();
+            int leading = headers.get(childIndex) != null ? 1 : 0;
+            int span = leading + size + (footers.get(childIndex) != null ? 1 : 0);
+            assertEquals(offset, offsetIndex.getOffset(childIndex));
+            assertEquals(size, offsetIndex.getCount(childIndex));
+            assertEquals(span, offsetIndex.getSpan(childIndex));
+            for (int i = 0; i < span; i++) {
+                long resolved = offsetIndex.resolve(offset + i);
+                assertEquals(childIndex, OffsetIndex.childIndexOf(resolved));
+                assertEquals(i - leading, OffsetIndex.relativePositionOf(resolved));
+            }
+            offset += span;
+        }
+
+        // Use the item itself as its view type so moves can be checked: every cached entry must
+        // still belong to the item at its position.
+        for (int position = 0; position < expected.size(); position++) {
+            int cached = viewTypeCache.get(position);
+            if (cached != ViewTypeCache.UNKNOWN) {
+                assertEquals("cached view type at " + position, (int) expected.get(position), cached);
+            }
+            viewTypeCache.put(position, expected.get(position));
+        }
+    }
+
+    private static List<Integer> asList(Integer... items) {
+        List<Integer> list = new ArrayList<>();
+        for (Integer item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * Applies the translated notifications to a flat copy of the list, the way RecyclerView would.
+     */
+    private class FlattenedListCallback implements UpdateBatch.Callback {
+
+        @Override
+        public void onDataSetChanged() {
+            dataSetChangedCount++;
+            flattened.clear();
+            flattened.addAll(expectedList());
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            assertTrue(positionStart + itemCount <= flattened.size());
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            // The notification does not say which items were inserted; leave null placeholders
+            // for assertConsistent() to match against the newly created items.
+            for (int i = 0; i < itemCount; i++) {
+                flattened.add(positionStart, null);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            flattened.subList(positionStart, positionStart + itemCount).clear();
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            flattened.add(toPosition, flattened.remove(fromPosition));
+        }
+
+        @Override
+        public void onStructureChanged() {
+            structureChangedCount++;
+        }
+    }
+}
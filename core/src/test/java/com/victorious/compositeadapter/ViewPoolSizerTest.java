@@ -0,0 +1,122 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ViewPoolSizerTest {
+
+    private ViewPoolSizer sizer;
+    private RecordingPool pool;
+
+    @Before
+    public void setUp() {
+        sizer = new ViewPoolSizer(2, 20, 5);
+        pool = new RecordingPool();
+    }
+
+    @Test
+    public void budgetIsSplitByShareOfBinds() {
+        bind(0, 75);
+        bind(1, 25);
+        sizer.resize(pool);
+
+        // Budget of 2 types * 5 = 10: 7.5 rounds up to 8, 2.5 up to 3.
+        assertEquals(8, (int) pool.sizes.get(0));
+        assertEquals(3, (int) pool.sizes.get(1));
+        assertEquals(8, sizer.getMaxRecycledViews(0));
+    }
+
+    @Test
+    public void sizesStayWithinBounds() {
+        bind(0, 1000);
+        bind(1, 1);
+        for (int viewType = 2; viewType < 10; viewType++) {
+            bind(viewType, 1);
+        }
+        sizer.resize(pool);
+
+        assertEquals(20, (int) pool.sizes.get(0));
+        assertEquals(2, (int) pool.sizes.get(1));
+    }
+
+    @Test
+    public void unusedViewTypesDoNotInflateTheBudget() {
+        // View types 0..99 belonged to removed children and were never bound since.
+        sizer.onCreated(99);
+        sizer.release(99, pool);
+        bind(100, 50);
+        bind(101, 50);
+        pool.sizes.clear();
+        sizer.resize(pool);
+
+        assertEquals(5, (int) pool.sizes.get(100));
+        assertEquals(5, (int) pool.sizes.get(101));
+        assertEquals(2, pool.sizes.size());
+    }
+
+    @Test
+    public void releaseEmptiesThePoolOfTheViewType() {
+        bind(0, 10);
+        bind(1, 10);
+        sizer.resize(pool);
+        sizer.release(1, pool);
+
+        assertEquals(0, (int) pool.sizes.get(1));
+        assertEquals(0, sizer.getBindCount(1));
+        sizer.resize(pool);
+        assertEquals(5, (int) pool.sizes.get(0));
+    }
+
+    @Test
+    public void onlyChangedSizesAreApplied() {
+        bind(0, 10);
+        sizer.resize(pool);
+        pool.sizes.clear();
+        bind(0, 10);
+        sizer.resize(pool);
+        assertTrue(pool.sizes.isEmpty());
+    }
+
+    @Test
+    public void resetKeepsAppliedSizes() {
+        bind(0, 10);
+        sizer.onCreated(0);
+        sizer.resize(pool);
+        sizer.resetCounters();
+
+        assertEquals(0, sizer.getTotalCreateCount());
+        assertEquals(0, sizer.getBindCount(0));
+        assertEquals(5, sizer.getMaxRecycledViews(0));
+        pool.sizes.clear();
+        sizer.resize(pool);
+        assertFalse(pool.sizes.containsKey(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBoundsAreRejected() {
+        new ViewPoolSizer(5, 2, 5);
+    }
+
+    private void bind(int viewType, int count) {
+        for (int i = 0; i < count; i++) {
+            sizer.onBound(viewType);
+        }
+    }
+
+    private static class RecordingPool implements ViewPoolSizer.Pool {
+
+        private final Map<Integer, Integer> sizes = new HashMap<>();
+
+        @Override
+        public void setMaxRecycledViews(int viewType, int max) {
+            sizes.put(viewType, max);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ViewTypeCacheTest {
+
+    private ViewTypeCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ViewTypeCache(5);
+        for (int position = 0; position < 5; position++) {
+            cache.put(position, position * 10);
+        }
+    }
+
+    @Test
+    public void newCacheKnowsNothing() {
+        ViewTypeCache empty = new ViewTypeCache(3);
+        assertEquals(3, empty.size());
+        for (int position = 0; position < 3; position++) {
+            assertEquals(ViewTypeCache.UNKNOWN, empty.get(position));
+        }
+        assertEquals(ViewTypeCache.UNKNOWN, empty.get(3));
+    }
+
+    @Test
+    public void invalidateOnlyClearsTheChangedRange() {
+        cache.invalidate(1, 2);
+        assertCache(0, ViewTypeCache.UNKNOWN, ViewTypeCache.UNKNOWN, 30, 40);
+    }
+
+    @Test
+    public void insertShiftsFollowingEntries() {
+        cache.insert(2, 2);
+        assertCache(0, 10, ViewTypeCache.UNKNOWN, ViewTypeCache.UNKNOWN, 20, 30, 40);
+
+        cache.insert(7, 1);
+        assertCache(0, 10, ViewTypeCache.UNKNOWN, ViewTypeCache.UNKNOWN, 20, 30, 40, ViewTypeCache.UNKNOWN);
+    }
+
+    @Test
+    public void insertGrowsPastCapacity() {
+        cache.insert(0, 100);
+        assertEquals(105, cache.size());
+        assertEquals(ViewTypeCache.UNKNOWN, cache.get(99));
+        assertEquals(40, cache.get(104));
+    }
+
+    @Test
+    public void removeShiftsFollowingEntries() {
+        cache.remove(1, 3);
+        assertCache(0, 40);
+    }
+
+    @Test
+    public void moveShiftsEntriesInBetween() {
+        cache.move(0, 3);
+        assertCache(10, 20, 30, 0, 40);
+        cache.move(4, 1);
+        assertCache(10, 40, 20, 30, 0);
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        cache.reset(2);
+        assertCache(ViewTypeCache.UNKNOWN, ViewTypeCache.UNKNOWN);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void removePastEndIsRejected() {
+        cache.remove(4, 2);
+    }
+
+    private void assertCache(int... expected) {
+        assertEquals(expected.length, cache.size());
+        for (int position = 0; position < expected.length; position++) {
+            assertEquals("position " + position, expected[position], cache.get(position));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class ViewTypeTableTest {
+
+    private ViewTypeTable<String> table;
+
+    @Before
+    public void setUp() {
+        table = new ViewTypeTable<>();
+    }
+
+    @Test
+    public void sameLocalTypeFromDifferentChildrenDoesNotCollide() {
+        int people = table.getGlobalType(0, "people", 1);
+        int messages = table.getGlobalType(1, "messages", 1);
+
+        assertNotEquals(people, messages);
+        assertSame("people", table.getOwner(people));
+        assertSame("messages", table.getOwner(messages));
+        assertEquals(1, table.getLocalType(people));
+        assertEquals(1, table.getLocalType(messages));
+        assertEquals(1, table.getChildId(messages));
+    }
+
+    @Test
+    public void repeatedLookupsReturnTheSameGlobalType() {
+        int first = table.getGlobalType(3, "child", -7);
+        assertEquals(first, table.getGlobalType(3, "child", -7));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void mappingSurvivesGrowth() {
+        int[][] globalTypes = new int[50][20];
+        for (int child = 0; child < 50; child++) {
+            for (int local = 0; local < 20; local++) {
+                globalTypes[child][local] = table.getGlobalType(child, "child" + child, local * 31);
+            }
+        }
+        assertEquals(1000, table.size());
+        for (int child = 0; child < 50; child++) {
+            for (int local = 0; local < 20; local++) {
+                int globalType = globalTypes[child][local];
+                assertEquals(globalType, table.getGlobalType(child, "child" + child, local * 31));
+                assertEquals(child, table.getChildId(globalType));
+                assertEquals(local * 31, table.getLocalType(globalType));
+                assertEquals("child" + child, table.getOwner(globalType));
+            }
+        }
+    }
+
+    @Test
+    public void releasedChildKeepsItsGlobalTypesReserved() {
+        int people = table.getGlobalType(0, "people", 1);
+        int messages = table.getGlobalType(1, "messages", 1);
+        table.release(0);
+
+        assertEquals(null, table.getOwner(people));
+        assertSame("people", table.getReleasedOwner(people));
+        assertSame("messages", table.getOwner(messages));
+        assertEquals(null, table.getReleasedOwner(messages));
+        assertNotEquals(people, table.getGlobalType(2, "people", 1));
+    }
+
+    @Test
+    public void holderCallbacksGoToTheChildOwningTheViewType() {
+        int people = table.getGlobalType(0, "people", 1);
+        int peopleCompact = table.getGlobalType(0, "people", 2);
+        int messages = table.getGlobalType(1, "messages", 1);
+
+        assertSame("people", table.getHolderOwner(people));
+        assertSame("people", table.getHolderOwner(peopleCompact));
+        assertSame("messages", table.getHolderOwner(messages));
+    }
+
+    @Test
+    public void holderCallbacksOfRemovedChildStillReachIt() {
+        int people = table.getGlobalType(0, "people", 1);
+        int messages = table.getGlobalType(1, "messages", 1);
+        table.release(0);
+
+        assertSame("people", table.getHolderOwner(people));
+        assertSame("messages", table.getHolderOwner(messages));
+    }
+
+    @Test
+    public void slotAndUnknownViewTypesHaveNoHolderOwner() {
+        int slot = table.getGlobalType(-1, "slot class", 1);
+
+        assertEquals(null, table.getHolderOwner(slot));
+        assertEquals(null, table.getHolderOwner(-1));
+        assertEquals(null, table.getHolderOwner(table.size()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownGlobalTypeIsRejected() {
+        table.getOwner(0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.victorious.compositeadapter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WarmHoldersTest {
+
+    @Test
+    public void takeReturnsHoldersOfTheViewType() {
+        WarmHolders<String> holders = new WarmHolders<>();
+        holders.put(2, "a");
+        holders.put(2, "b");
+        holders.put(0, "c");
+
+        assertEquals(2, holders.count(2));
+        assertEquals("b", holders.take(2));
+        assertEquals("a", holders.take(2));
+        assertNull(holders.take(2));
+        assertEquals("c", holders.take(0));
+    }
+
+    @Test
+    public void unknownViewTypeHasNoHolders() {
+        WarmHolders<String> holders = new WarmHolders<>();
+
+        assertEquals(0, holders.count(5));
+        assertNull(holders.take(5));
+    }
+
+    @Test
+    public void releasedViewTypeDropsItsHolders() {
+        WarmHolders<String> holders = new WarmHolders<>();
+        holders.put(1, "removed child");
+        holders.put(1, "removed child");
+        holders.put(3, "other child");
+
+        holders.release(1);
+
+        assertEquals(0, holders.count(1));
+        assertNull(holders.take(1));
+        assertEquals(1, holders.count(3));
+    }
+
+    @Test
+    public void releasingChildDropsOnlyItsHolders() {
+        ViewTypeTable<String> table = new ViewTypeTable<>();
+        WarmHolders<String> holders = new WarmHolders<>();
+        int removedFirst = table.getGlobalType(0, "removed", 0);
+        int kept = table.getGlobalType(1, "kept", 0);
+        int removedSecond = table.getGlobalType(0, "removed", 1);
+        holders.put(removedFirst, "removed holder");
+        holders.put(kept, "kept holder");
+        holders.put(removedSecond, "removed holder");
+
+        // As CompositeAdapter.releaseChild() does for child 0.
+        for (int viewType = 0; viewType < table.size(); viewType++) {
+            if (table.getChildId(viewType) == 0) {
+                holders.release(viewType);
+            }
+        }
+        table.release(0);
+
+        assertNull(holders.take(removedFirst));
+        assertNull(holders.take(removedSecond));
+        assertEquals("kept holder", holders.take(kept));
+    }
+
+    @Test
+    public void releaseOfUnknownViewTypeIsIgnored() {
+        WarmHolders<String> holders = new WarmHolders<>();
+
+        holders.release(4);
+        holders.put(4, "a");
+
+        assertEquals("a", holders.take(4));
+    }
+}
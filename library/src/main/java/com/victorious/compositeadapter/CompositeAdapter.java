@@ -16,13 +16,19 @@
 
 package com.victorious.compositeadapter;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
-import android.util.SparseArray;
+import android.view.View;
 import android.view.ViewGroup;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Author: berickson926
@@ -33,105 +39,900 @@ import java.util.List;
  * custom data/view holder binding as normal.
  * <p/>
  * Then add each adapter to your CompositeAdapter instance via CompositeAdapter.addAdapter().
+ * Adapters can be added, removed and reordered at any time, including after the CompositeAdapter
+ * has been set on the RecyclerView; each such change is reported as a single range notification.
  * <p/>
  * Only the CompositeAdapter should be bound to your single RecyclerView instance via ReyclerView.setAdapter().
  * <p/>
- * Note: adding child adapters to your CompositeAdapter AFTER setting it on your RecyclerView may
- * create indeterminate behavior at this time.
+ * Child adapters are only observed while the composite is attached to a RecyclerView, directly or
+ * through an outer composite, and attach and detach are forwarded to them. Changes children make
+ * while the composite is detached are picked up when it is attached again.
+ * <p/>
+ * View types reported by child adapters are remapped to view types which are unique across the
+ * whole composite, so two children may safely use the same view type values. As a consequence
+ * ViewHolder.getItemViewType() reports the composite's view type rather than the child's own; child
+ * adapters should not compare it against their own view type constants.
+ * <p/>
+ * A CompositeAdapter may itself be added as a child of another CompositeAdapter. The outer composite
+ * then indexes the leaf adapters of the whole tree directly, so positions resolve with one lookup
+ * whatever the nesting depth, and view types and item ids are namespaced per leaf. The nested
+ * composite only acts as a container: its own view type cache, pool manager and warm-up settings do
+ * not apply to positions bound through the outer composite.
+ * <p/>
+ * Every child can be given a header and a footer ({@link SectionSlot}) with
+ * {@link #setHeader(RecyclerView.Adapter, SectionSlot)} and
+ * {@link #setFooter(RecyclerView.Adapter, SectionSlot)}. They are positions of the composite
+ * without being items of the child or extra children; slots of the same class reporting the same
+ * view type share their ViewHolders across sections.
  * <p/>
  */
 public class CompositeAdapter<AdapterType extends RecyclerView.Adapter> extends RecyclerView.Adapter {
 
-    private List<AdapterType> adapters;
-    private SparseArray<AdapterType> viewTypeMapping;
+    private static final PrefetchCoordinator.Target<Child> PREFETCH_TARGET = new PrefetchTarget();
+
+    private List<Child> children;
+    private ViewTypeTable<Object> viewTypeTable;
+    private OffsetIndex offsetIndex;
+    // Children and index used to resolve positions: the direct children, or the leaf adapters of
+    // the whole tree once a nested CompositeAdapter has been added.
+    private LeafTree<Child> leafTree;
+    private List<Child> lookupChildren;
+    private OffsetIndex lookupIndex;
+    private ViewTypeCache viewTypeCache;
+    private UpdateTranslator updateTranslator;
+    private ViewPoolManager viewPoolManager;
+    private MetricsListener metricsListener;
+    private volatile PositionSnapshot<RecyclerView.Adapter> positionSnapshot;
+    private boolean positionSnapshotsEnabled;
+    private boolean positionSnapshotPending;
+    private boolean itemCountVerificationEnabled;
+    private PrefetchCoordinator<Child> prefetchCoordinator;
+    private WarmHolders<RecyclerView.ViewHolder> warmViewHolders;
+    private Handler mainHandler;
+    private int snapshotGeneration;
+    private int nextChildId;
+    private NamespaceAllocator namespaces;
+    private SlotTypes slotTypes;
+    private AttachTracker<RecyclerView, Child> attachTracker;
 
     public CompositeAdapter() {
-        adapters = new ArrayList<>();
-        viewTypeMapping = new SparseArray<>();
+        children = new ArrayList<>();
+        attachTracker = new AttachTracker<>(children, new AttachCallback(this));
+        viewTypeTable = new ViewTypeTable<>();
+        namespaces = new NamespaceAllocator();
+        slotTypes = new SlotTypes(viewTypeTable);
+        warmViewHolders = new WarmHolders<>();
+        offsetIndex = new OffsetIndex();
+        leafTree = new LeafTree<>(children, offsetIndex, new LeafFactory(this));
+        lookupChildren = children;
+        lookupIndex = offsetIndex;
+        updateTranslator = new UpdateTranslator(offsetIndex, new Notifier(this));
     }
 
     public void addAdapter(AdapterType adapter) {
-        adapter.registerAdapterDataObserver(new AdapterObserver<>(adapter, this));
-        adapters.add(adapter);
+        addAdapter(children.size(), adapter);
+    }
+
+    /**
+     * Insert a child adapter; its items are reported as one inserted range.
+     *
+     * @param index   index the adapter will have among the children.
+     * @param adapter child adapter, which must not already be part of this composite.
+     */
+    public void addAdapter(int index, AdapterType adapter) {
+        if (indexOfAdapter(adapter) >= 0) {
+            throw new IllegalArgumentException("Adapter already added to CompositeAdapter");
+        }
+        if (adapter == this || (adapter instanceof CompositeAdapter && ((CompositeAdapter<?>) adapter).containsAdapter(this))) {
+            throw new IllegalArgumentException("Cannot nest a CompositeAdapter within itself");
+        }
+        if (index < 0 || index > children.size()) {
+            throw new IndexOutOfBoundsException("No child index " + index);
+        }
+        if (hasObservers() && hasStableIds() && !hasStableIds(adapter)) {
+            throw new IllegalStateException("Cannot add an adapter without stable ids to an observed CompositeAdapter with stable ids.");
+        }
+        Child child = new Child(adapter, nextChildId++, namespaces.allocate(), new AdapterObserver<>(adapter, this), null);
+        // Attached first: a nested composite refreshes its counts on attach, and must not report
+        // that refresh on top of the insert.
+        attachTracker.onChildAdded(child);
+        children.add(index, child);
+        leafTree.insert(index, adapter instanceof CompositeAdapter ? ((CompositeAdapter<?>) adapter).leafTree : null);
+        updateTranslator.onChildInserted(index, adapter.getItemCount());
+        onIndexChanged();
+        updateStableIds();
+    }
+
+    /**
+     * Remove a child adapter and stop observing it; its items are reported as one removed range.
+     *
+     * @param adapter child adapter.
+     * @return whether the adapter was part of this composite.
+     */
+    public boolean removeAdapter(AdapterType adapter) {
+        int index = indexOfAdapter(adapter);
+        if (index < 0) return false;
+        Child child = children.remove(index);
+        attachTracker.onChildRemoved(child);
+        leafTree.remove(index);
+        updateTranslator.onChildRemoved(index);
+        onIndexChanged();
+        releaseChild(child);
+        updateStableIds();
+        return true;
+    }
+
+    /**
+     * Move a child adapter to a new index. The items of every child between the old and new index
+     * shift, which is reported as one changed range over them.
+     *
+     * @param adapter child adapter.
+     * @param toIndex index the adapter will have among the children.
+     */
+    public void moveAdapter(AdapterType adapter, int toIndex) {
+        int fromIndex = getChildIndex(adapter);
+        if (toIndex < 0 || toIndex >= children.size()) {
+            throw new IndexOutOfBoundsException("No child index " + toIndex);
+        }
+        children.add(toIndex, children.remove(fromIndex));
+        leafTree.move(fromIndex, toIndex);
+        updateTranslator.onChildMoved(fromIndex, toIndex);
+        onIndexChanged();
+    }
+
+    /**
+     * @return number of child adapters.
+     */
+    public int getAdapterCount() {
+        return children.size();
+    }
+
+    /**
+     * @return child adapter at the index.
+     */
+    @SuppressWarnings("unchecked")
+    public AdapterType getAdapter(int index) {
+        return (AdapterType) children.get(index).adapter;
+    }
+
+    /**
+     * Show a header before the items of a child. The header is shown even while the child is empty.
+     *
+     * @param adapter child adapter, which must not be a nested CompositeAdapter.
+     * @param header  header to show, or null to remove the current one.
+     */
+    public void setHeader(AdapterType adapter, SectionSlot header) {
+        int index = getSlotChildIndex(adapter);
+        Child child = children.get(index);
+        if (child.header == null && header == null) return;
+        child.header = header;
+        leafTree.onChildChanged(index, true);
+        updateTranslator.onChildLeadingSlotsChanged(index, header != null ? 1 : 0);
+        onIndexChanged();
+    }
+
+    /**
+     * Show a footer after the items of a child. The footer is shown even while the child is empty.
+     *
+     * @param adapter child adapter, which must not be a nested CompositeAdapter.
+     * @param footer  footer to show, or null to remove the current one.
+     */
+    public void setFooter(AdapterType adapter, SectionSlot footer) {
+        int index = getSlotChildIndex(adapter);
+        Child child = children.get(index);
+        if (child.footer == null && footer == null) return;
+        child.footer = footer;
+        leafTree.onChildChanged(index, true);
+        updateTranslator.onChildTrailingSlotsChanged(index, footer != null ? 1 : 0);
+        onIndexChanged();
+    }
+
+    private int getSlotChildIndex(AdapterType adapter) {
+        if (adapter instanceof CompositeAdapter) {
+            throw new IllegalArgumentException("Set headers and footers on the children of a nested CompositeAdapter");
+        }
+        return getChildIndex(adapter);
+    }
+
+    /**
+     * @return whether the adapter is a child of this composite or of a composite nested in it.
+     */
+    private boolean containsAdapter(RecyclerView.Adapter adapter) {
+        for (int i = 0, size = children.size(); i < size; i++) {
+            RecyclerView.Adapter child = children.get(i).adapter;
+            if (child == adapter || (child instanceof CompositeAdapter && ((CompositeAdapter<?>) child).containsAdapter(adapter))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called after every structural change and before every notification is dispatched.
+     */
+    private void onIndexChanged() {
+        leafTree.sync();
+        lookupChildren = leafTree.getLeaves();
+        lookupIndex = leafTree.getIndex();
+        onPositionSnapshotStale();
+    }
+
+    /**
+     * Publish a new position snapshot, or inside a transaction leave it to the commit, so the
+     * snapshot never runs ahead of the notifications the RecyclerView has received.
+     */
+    private void onPositionSnapshotStale() {
+        if (!positionSnapshotsEnabled) return;
+        if (updateTranslator.isBatching()) {
+            positionSnapshotPending = true;
+        } else {
+            positionSnapshotPending = false;
+            publishPositionSnapshot();
+        }
+    }
+
+    /**
+     * Drop the view type owners, pool sizes, warm holders and namespace of a child which left the
+     * tree. Warm-ups still pending for it find no owner and are dropped.
+     */
+    private void releaseChild(Child child) {
+        for (int viewType = 0, size = viewTypeTable.size(); viewType < size; viewType++) {
+            if (viewTypeTable.getChildId(viewType) != child.id) continue;
+            warmViewHolders.release(viewType);
+            if (viewPoolManager != null) {
+                viewPoolManager.onViewTypeReleased(viewType);
+            }
+        }
+        viewTypeTable.release(child.id);
+        namespaces.release(child.namespace);
+    }
+
+    /**
+     * The composite reports stable ids whenever every child does, so RecyclerView can match views
+     * by identity, e.g. across notifyDataSetChanged(). Stable ids can only be switched while no
+     * RecyclerView observes the composite, so children without stable ids must be added before
+     * the composite is set on the RecyclerView when the existing children have them; addAdapter()
+     * rejects them otherwise.
+     */
+    private void updateStableIds() {
+        if (hasObservers()) return;
+        setHasStableIds(childrenHaveStableIds());
+    }
+
+    /**
+     * Looks through nested composites, whose own flag is only recomputed on their changes and may
+     * lag behind changes further down.
+     */
+    private boolean childrenHaveStableIds() {
+        for (int i = 0, size = children.size(); i < size; i++) {
+            if (!hasStableIds(children.get(i).adapter)) return false;
+        }
+        return true;
+    }
+
+    private static boolean hasStableIds(RecyclerView.Adapter adapter) {
+        return adapter instanceof CompositeAdapter ? ((CompositeAdapter<?>) adapter).childrenHaveStableIds() : adapter.hasStableIds();
+    }
+
+    /**
+     * Stable ids are recomputed right before the first observer registers, after which they can no
+     * longer change, so changes made meanwhile in nested composites are taken into account.
+     */
+    @Override
+    public void registerAdapterDataObserver(RecyclerView.AdapterDataObserver observer) {
+        updateStableIds();
+        super.registerAdapterDataObserver(observer);
+    }
+
+    /**
+     * Cache the view type resolved for every position so that repeated getItemViewType() calls
+     * during layout, prefetch and animations are answered without asking the child adapter again.
+     * Cached entries are invalidated from the child change notifications, so children must report
+     * every change through the notify* methods (as RecyclerView already requires).
+     * <p/>
+     * The cache holds one int per item, so it is off by default.
+     *
+     * @param enabled whether view types should be cached.
+     */
+    public void setViewTypeCacheEnabled(boolean enabled) {
+        if (enabled && viewTypeCache == null) {
+            viewTypeCache = new ViewTypeCache(offsetIndex.getTotalCount());
+        } else if (!enabled) {
+            viewTypeCache = null;
+        }
+        updateTranslator.setViewTypeCache(viewTypeCache);
+    }
+
+    /**
+     * Report a child's notifyDataSetChanged() as a change of that child's items only, plus the
+     * insertion or removal of the items by which its count changed, instead of invalidating the
+     * whole composite, so only the child's section is rebound. Off by default, as it animates the
+     * section as changed in place rather than refreshing the list.
+     *
+     * @param enabled whether full changes of a child should be scoped to that child.
+     */
+    public void setScopedChangesEnabled(boolean enabled) {
+        updateTranslator.setScopedChanges(enabled);
+    }
+
+    /**
+     * Record how often each view type is created and bound, and size the shared RecycledViewPool
+     * to match. See {@link ViewPoolManager}.
+     *
+     * @param viewPoolManager manager for the pool of the RecyclerView showing this composite, or
+     *                        null to stop recording.
+     */
+    public void setViewPoolManager(ViewPoolManager viewPoolManager) {
+        this.viewPoolManager = viewPoolManager;
+    }
+
+    /**
+     * Report the duration of every onCreateViewHolder(), onBindViewHolder(), getItemViewType() and
+     * position lookup, attributed to the child and view type involved. See {@link AdapterMetrics}.
+     * <p/>
+     * While no listener is set the hot paths only pay for a null check; System.nanoTime() is not
+     * called.
+     *
+     * @param metricsListener listener to report to, or null to stop measuring.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * @param adapter child adapter, or leaf adapter of a nested composite.
+     * @return id under which the adapter is reported to the {@link MetricsListener}.
+     */
+    public int getChildId(RecyclerView.Adapter adapter) {
+        for (int i = 0, size = lookupChildren.size(); i < size; i++) {
+            if (lookupChildren.get(i).adapter == adapter) return lookupChildren.get(i).id;
+        }
+        throw new IllegalArgumentException("No adapter exists with CompositeAdapter");
+    }
+
+    /**
+     * ViewHolder.getItemViewType() reports the composite's view type. Child adapters which create
+     * several view types can use this to branch on their own view type instead, e.g. in
+     * onBindViewHolder(). Call it on the composite set on the RecyclerView, which is the outermost
+     * one when composites are nested.
+     *
+     * @param holder ViewHolder created through this composite.
+     * @return view type the child (or the header or footer slot) reported for the holder.
+     */
+    public int getLocalViewType(RecyclerView.ViewHolder holder) {
+        return viewTypeTable.getLocalType(holder.getItemViewType());
+    }
+
+    /**
+     * Tell the children implementing {@link PrefetchAdapter} which of their positions are visible
+     * or about to become visible, typically from a scroll listener such as
+     * {@link PrefetchScrollListener}. The range is split into one relative range per overlapped
+     * child; children overlapped by the previous range but not by this one are cancelled.
+     *
+     * @param positionStart first absolute position, e.g. the first visible one.
+     * @param itemCount     number of positions, e.g. the visible ones plus those coming up next.
+     */
+    public void setPrefetchRange(int positionStart, int itemCount) {
+        if (prefetchCoordinator == null) {
+            prefetchCoordinator = new PrefetchCoordinator<>();
+        }
+        prefetchCoordinator.setRange(positionStart, itemCount, lookupIndex, lookupChildren, PREFETCH_TARGET);
+    }
+
+    /**
+     * Cancel the prefetches of every child.
+     */
+    public void cancelPrefetch() {
+        if (prefetchCoordinator != null) {
+            prefetchCoordinator.cancel(PREFETCH_TARGET);
+        }
+    }
+
+    /**
+     * Publish immutable {@link PositionSnapshot}s of the position index and view type mapping, so
+     * background threads (e.g. an image prefetcher or accessibility) can resolve positions without
+     * touching the composite. A new snapshot is copied on the main thread with every notification
+     * and whenever a new view type is seen, which costs O(children + view types); item data is
+     * never copied. Inside a transaction, publishing waits for the commit.
+     *
+     * @param enabled whether snapshots should be published.
+     */
+    public void setPositionSnapshotsEnabled(boolean enabled) {
+        positionSnapshotsEnabled = enabled;
+        if (enabled) {
+            publishPositionSnapshot();
+        } else {
+            positionSnapshot = null;
+        }
+    }
+
+    /**
+     * May be called from any thread. When children are nested composites, the snapshot lists their
+     * leaf adapters.
+     *
+     * @return latest snapshot, or null unless enabled by {@link #setPositionSnapshotsEnabled(boolean)}.
+     */
+    public PositionSnapshot<RecyclerView.Adapter> getPositionSnapshot() {
+        return positionSnapshot;
+    }
+
+    private void publishPositionSnapshot() {
+        PositionSnapshot<RecyclerView.Adapter> previous = positionSnapshot;
+        int version = previous != null ? previous.getVersion() + 1 : 0;
+        List<RecyclerView.Adapter> adapters = new ArrayList<>(lookupChildren.size());
+        for (Child child : lookupChildren) {
+            adapters.add(child.adapter);
+        }
+        positionSnapshot = PositionSnapshot.create(version, adapters, lookupIndex, viewTypeTable);
+    }
+
+    /**
+     * Map a child or slot view type to the composite's view type, republishing the position
+     * snapshot when the view type is new so background readers can resolve it.
+     */
+    private int getGlobalViewType(int ownerId, Object owner, int localViewType) {
+        int viewTypeCount = viewTypeTable.size();
+        int viewType = viewTypeTable.getGlobalType(ownerId, owner, localViewType);
+        if (viewTypeTable.size() != viewTypeCount) {
+            onPositionSnapshotStale();
+        }
+        return viewType;
+    }
+
+    private long startTiming() {
+        return metricsListener != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Report an operation started at startNanos.
+     *
+     * @return time at which reporting finished, to start timing a following operation.
+     */
+    private long recordTiming(int operation, int childId, int viewType, long startNanos) {
+        if (metricsListener == null) return 0;
+        metricsListener.onOperation(operation, childId, viewType, System.nanoTime() - startNanos);
+        return System.nanoTime();
+    }
+
+    /**
+     * Pre-create ViewHolders for one view type of a child adapter and place them in the
+     * RecyclerView's pool, so the first scroll into the child's section does not stall on
+     * inflation.
+     * <p/>
+     * Children implementing {@link PreInflatableAdapter} have their layout inflated off the main
+     * thread by AsyncLayoutInflater. Otherwise one ViewHolder is created each time the main thread
+     * goes idle. Holders beyond the pool's maximum for the view type are dropped by the pool, so
+     * count should not exceed it (5 by default, see {@link ViewPoolManager}).
+     * <p/>
+     * Must be called on the main thread, after the composite has been set on the RecyclerView.
+     *
+     * @param recyclerView RecyclerView showing this composite.
+     * @param adapter      child adapter.
+     * @param viewType     view type as returned by the child adapter's getItemViewType().
+     * @param count        number of ViewHolders to create.
+     */
+    public void warmUp(RecyclerView recyclerView, AdapterType adapter, int viewType, int count) {
+        Child child = children.get(getChildIndex(adapter));
+        int globalViewType = getGlobalViewType(child.id, adapter, viewType);
+        int layoutResource = adapter instanceof PreInflatableAdapter
+                ? ((PreInflatableAdapter) adapter).getItemLayoutResource(viewType) : 0;
+        if (layoutResource != 0) {
+            AsyncLayoutInflater inflater = new AsyncLayoutInflater(recyclerView.getContext());
+            WarmUpInflateListener<AdapterType> listener = new WarmUpInflateListener<>(this, globalViewType);
+            for (int i = 0; i < count; i++) {
+                inflater.inflate(layoutResource, recyclerView, listener);
+            }
+        } else if (count > 0) {
+            Looper.myQueue().addIdleHandler(new WarmUpIdleHandler<>(this, recyclerView, globalViewType, count));
+        }
+    }
+
+    /**
+     * Create a ViewHolder through RecyclerView's createViewHolder(), picking up an asynchronously
+     * inflated one if available, and recycle it into the pool.
+     */
+    private void putWarmViewHolder(RecyclerView recyclerView, int viewType) {
+        RecyclerView.ViewHolder holder = createViewHolder(recyclerView, viewType);
+        recyclerView.getRecycledViewPool().putRecycledView(holder);
+    }
+
+    /**
+     * Start buffering the change notifications of every child adapter. Until the matching
+     * {@link #commitTransaction()} the composite keeps its position index up to date but does not
+     * notify the RecyclerView; on commit the buffered ranges are merged where they touch or overlap
+     * and dispatched together.
+     * <p/>
+     * Transactions may be nested, only the outermost commit dispatches. Begin and commit must be
+     * called on the main thread within the same frame.
+     */
+    public void beginTransaction() {
+        updateTranslator.beginTransaction();
+    }
+
+    /**
+     * Close the transaction opened by {@link #beginTransaction()}, dispatch the merged
+     * notifications and publish the position snapshot held back during the transaction.
+     */
+    public void commitTransaction() {
+        updateTranslator.commitTransaction();
+        if (positionSnapshotPending) {
+            onPositionSnapshotStale();
+        }
+    }
+
+    /**
+     * Replace the data of several child adapters at once without calling notifyDataSetChanged().
+     * <p/>
+     * A DiffUtil diff is computed for every update on the given executor. Back on the main thread
+     * each child's new data is applied and its diff dispatched inside a single transaction (see
+     * {@link #beginTransaction()}), so the RecyclerView receives one merged set of notifications
+     * and keeps its ViewHolders.
+     * <p/>
+     * Submitting again before a previous submission has been applied discards the previous one.
+     * Must be called on the main thread.
+     *
+     * @param updates  one update per child adapter whose data is being replaced.
+     * @param executor background executor used for diffing.
+     */
+    public void submitSnapshots(List<SnapshotUpdate<AdapterType>> updates, Executor executor) {
+        for (SnapshotUpdate<AdapterType> update : updates) {
+            getChildIndex(update.getAdapter());
+        }
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        executor.execute(new SnapshotDiffTask<>(this, new ArrayList<>(updates), ++snapshotGeneration));
+    }
+
+    private void applySnapshots(List<SnapshotUpdate<AdapterType>> updates, DiffUtil.DiffResult[] results, int generation) {
+        if (generation != snapshotGeneration) return;
+        beginTransaction();
+        for (int i = 0, size = updates.size(); i < size; i++) {
+            SnapshotUpdate<AdapterType> update = updates.get(i);
+            update.applyData();
+            results[i].dispatchUpdatesTo(update.getAdapter());
+        }
+        commitTransaction();
     }
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        AdapterType adapter = viewTypeMapping.get(viewType);
-        return adapter.onCreateViewHolder(parent, viewType);
+        long start = startTiming();
+        Object owner = viewTypeTable.getOwner(viewType);
+        if (viewPoolManager != null) {
+            viewPoolManager.onViewHolderCreated(viewType);
+        }
+        RecyclerView.ViewHolder holder = warmViewHolders.take(viewType);
+        if (holder == null) {
+            if (slotTypes.isSlotType(viewType)) {
+                holder = findSlot(viewType).onCreateViewHolder(parent);
+            } else {
+                holder = ((RecyclerView.Adapter) owner).onCreateViewHolder(parent, viewTypeTable.getLocalType(viewType));
+            }
+        }
+        recordTiming(MetricsListener.OPERATION_CREATE, viewTypeTable.getChildId(viewType), viewType, start);
+        return holder;
     }
 
     //TODO: fix type params to avoid raw type here
     @SuppressWarnings("unchecked")
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-        AdapterInfo<AdapterType> info = getAdapterInfo(position);
-        AdapterType adapter = info.getAdapter();
-        int relativePosition = info.getRelativePosition();
-        adapter.onBindViewHolder(holder, relativePosition);
+        long start = startTiming();
+        long resolved = lookupIndex.resolve(position);
+        int childIndex = OffsetIndex.childIndexOf(resolved);
+        Child child = lookupChildren.get(childIndex);
+        int relativePosition = OffsetIndex.relativePositionOf(resolved);
+        start = recordTiming(MetricsListener.OPERATION_LOOKUP, child.id, -1, start);
+        SectionSlot slot = getSlot(child, childIndex, relativePosition);
+        if (slot != null) {
+            slot.onBindViewHolder(holder, child.adapter);
+        } else {
+            child.adapter.onBindViewHolder(holder, relativePosition);
+        }
+        recordTiming(MetricsListener.OPERATION_BIND, child.id, holder.getItemViewType(), start);
+        if (viewPoolManager != null) {
+            viewPoolManager.onViewHolderBound(holder.getItemViewType());
+        }
+        notifyNeighboursOfBind(childIndex, position);
     }
 
+    /**
+     * Payloads passed to notifyItemChanged()/notifyItemRangeChanged() by a child adapter are
+     * forwarded to the child's own payload aware onBindViewHolder(), so partial rebinds stay partial.
+     */
+    @SuppressWarnings("unchecked")
     @Override
-    public int getItemCount() {
-        int totalItemCount = 0;
-        for (AdapterType adapter : adapters) {
-            totalItemCount += adapter.getItemCount();
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List payloads) {
+        long start = startTiming();
+        long resolved = lookupIndex.resolve(position);
+        int childIndex = OffsetIndex.childIndexOf(resolved);
+        Child child = lookupChildren.get(childIndex);
+        int relativePosition = OffsetIndex.relativePositionOf(resolved);
+        start = recordTiming(MetricsListener.OPERATION_LOOKUP, child.id, -1, start);
+        SectionSlot slot = getSlot(child, childIndex, relativePosition);
+        if (slot != null) {
+            slot.onBindViewHolder(holder, child.adapter);
+        } else {
+            child.adapter.onBindViewHolder(holder, relativePosition, payloads);
+        }
+        recordTiming(MetricsListener.OPERATION_BIND, child.id, holder.getItemViewType(), start);
+        if (viewPoolManager != null) {
+            viewPoolManager.onViewHolderBound(holder.getItemViewType());
+        }
+        notifyNeighboursOfBind(childIndex, position);
+    }
+
+    /**
+     * Slot view types are owned by the slot class rather than by a slot instance, so any slot of
+     * the class currently shown which reports the same view type can create the holder.
+     */
+    private SectionSlot findSlot(int viewType) {
+        for (int i = 0, size = lookupChildren.size(); i < size; i++) {
+            Child slots = lookupChildren.get(i).getSlotOwner();
+            if (slots.header != null && slotTypes.canCreate(slots.header, slots.header.getViewType(), viewType)) {
+                return slots.header;
+            }
+            if (slots.footer != null && slotTypes.canCreate(slots.footer, slots.footer.getViewType(), viewType)) {
+                return slots.footer;
+            }
+        }
+        throw new IllegalStateException("No " + ((Class<?>) viewTypeTable.getOwner(viewType)).getName() + " with view type "
+                + viewTypeTable.getLocalType(viewType) + " is set as header or footer");
+    }
+
+    /**
+     * @return header or footer at the resolved position, or null when it is an item of the child.
+     */
+    private SectionSlot getSlot(Child child, int childIndex, int relativePosition) {
+        Child slots = child.getSlotOwner();
+        if (relativePosition < 0) return slots.header;
+        if (slots.footer != null && relativePosition >= lookupIndex.getCount(childIndex)) return slots.footer;
+        return null;
+    }
+
+    /**
+     * Let paged children next to the bound child know that the bound range is getting close, so
+     * they can start loading before their own rows are bound.
+     */
+    private void notifyNeighboursOfBind(int childIndex, int position) {
+        if (childIndex > 0) {
+            RecyclerView.Adapter previous = lookupChildren.get(childIndex - 1).adapter;
+            if (previous instanceof PagedAdapter) {
+                ((PagedAdapter) previous).onNearbyPositionBound(position - lookupIndex.getItemOffset(childIndex - 1));
+            }
+        }
+        if (childIndex < lookupChildren.size() - 1) {
+            RecyclerView.Adapter next = lookupChildren.get(childIndex + 1).adapter;
+            if (next instanceof PagedAdapter) {
+                ((PagedAdapter) next).onNearbyPositionBound(position - lookupIndex.getItemOffset(childIndex + 1));
+            }
         }
-        return totalItemCount;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public int getItemViewType(int position) {
-        AdapterInfo<AdapterType> info = getAdapterInfo(position);
-        AdapterType adapter = info.getAdapter();
-        int relativePosition = info.getRelativePosition();
-        int itemViewType = adapter.getItemViewType(relativePosition);
-        viewTypeMapping.put(itemViewType, adapter);
-        return itemViewType;
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = getHolderOwner(holder);
+        if (adapter != null) {
+            adapter.onViewRecycled(holder);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = getHolderOwner(holder);
+        return adapter != null && adapter.onFailedToRecycleView(holder);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = getHolderOwner(holder);
+        if (adapter != null) {
+            adapter.onViewAttachedToWindow(holder);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        RecyclerView.Adapter adapter = getHolderOwner(holder);
+        if (adapter != null) {
+            adapter.onViewDetachedFromWindow(holder);
+        }
     }
 
     /**
-     * Given the absolute index position within an entire list, identify which specific
-     * RecyclerView.Adapter implementation is responsible for that view/data.
+     * Rows of a removed child which are still on screen or animating out are handed back to it as
+     * long as it is referenced.
      *
-     * @param absolutePosition- index position for a single data point within the aggregate list.
-     * @return AdapterInfo - wrapper for the specific adapter that owns the VH/data and the relative
-     * adapter position.
+     * @return child adapter which created the holder, or null for header and footer slots and for
+     * holders of removed children which have been garbage collected.
      */
-    private AdapterInfo<AdapterType> getAdapterInfo(int absolutePosition) {
-        int position = absolutePosition;
-        for (AdapterType adapter : adapters) {
-            int adapterItemCount = adapter.getItemCount();
-            if (position < adapterItemCount) return new AdapterInfo<>(adapter, position);
-            else {
-                position -= adapterItemCount;
+    private RecyclerView.Adapter getHolderOwner(RecyclerView.ViewHolder holder) {
+        return (RecyclerView.Adapter) viewTypeTable.getHolderOwner(holder.getItemViewType());
+    }
+
+    /**
+     * Combines the owning child's item id with the child's namespace, see {@link StableIds}.
+     * Headers and footers get ids in a namespace of their own.
+     */
+    @Override
+    public long getItemId(int position) {
+        if (!hasStableIds()) return RecyclerView.NO_ID;
+        long resolved = lookupIndex.resolve(position);
+        int childIndex = OffsetIndex.childIndexOf(resolved);
+        Child child = lookupChildren.get(childIndex);
+        int relativePosition = OffsetIndex.relativePositionOf(resolved);
+        SectionSlot slot = getSlot(child, childIndex, relativePosition);
+        if (slot != null) {
+            return StableIds.combine(StableIds.SLOT_NAMESPACE, child.namespace * 2L + (relativePosition < 0 ? 0 : 1));
+        }
+        long itemId = child.adapter.getItemId(relativePosition);
+        return StableIds.combine(child.namespace, itemId);
+    }
+
+    /**
+     * Answered from the offset index, which is kept in step with the children's change
+     * notifications, so the children's own getItemCount() is not called during layout.
+     */
+    @Override
+    public int getItemCount() {
+        if (itemCountVerificationEnabled) {
+            attachTracker.verifyItemCounts(offsetIndex);
+        }
+        return offsetIndex.getTotalCount();
+    }
+
+    /**
+     * Check on every getItemCount() call that each child still has the item count last reported
+     * through its change notifications, and throw as soon as one changed size without notifying.
+     * Counts are only verified while the composite is attached to a RecyclerView, since changes
+     * made while detached are picked up on attach. This calls every child's getItemCount(), so only
+     * enable it in debug builds.
+     *
+     * @param enabled whether item counts should be verified.
+     */
+    public void setItemCountVerificationEnabled(boolean enabled) {
+        itemCountVerificationEnabled = enabled;
+    }
+
+    /**
+     * Forward the attach to the children, then start observing them when attached to the first
+     * RecyclerView; changes they made meanwhile are reported in one transaction.
+     */
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        beginTransaction();
+        boolean observing = attachTracker.onAttached(recyclerView);
+        commitTransaction();
+        if (observing) {
+            onIndexChanged();
+        }
+    }
+
+    /**
+     * Forward the detach to the children, then stop observing them and cancel their prefetches
+     * once no RecyclerView is left.
+     */
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        if (attachTracker.onDetached(recyclerView)) {
+            cancelPrefetch();
+        }
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        long start = startTiming();
+        if (viewTypeCache != null) {
+            int cachedViewType = viewTypeCache.get(position);
+            if (cachedViewType != ViewTypeCache.UNKNOWN) {
+                if (metricsListener != null) {
+                    recordTiming(MetricsListener.OPERATION_VIEW_TYPE, viewTypeTable.getChildId(cachedViewType), cachedViewType, start);
+                }
+                return cachedViewType;
             }
         }
-        throw new IndexOutOfBoundsException("absolutePosition index larger than total item count.");
+        long resolved = lookupIndex.resolve(position);
+        int childIndex = OffsetIndex.childIndexOf(resolved);
+        Child child = lookupChildren.get(childIndex);
+        int relativePosition = OffsetIndex.relativePositionOf(resolved);
+        SectionSlot slot = getSlot(child, childIndex, relativePosition);
+        int viewType;
+        if (slot != null) {
+            viewType = getGlobalViewType(slotTypes.getOwnerId(slot.getClass()), slot.getClass(), slot.getViewType());
+        } else {
+            viewType = getGlobalViewType(child.id, child.adapter, child.adapter.getItemViewType(relativePosition));
+        }
+        if (viewTypeCache != null) {
+            viewTypeCache.put(position, viewType);
+        }
+        recordTiming(MetricsListener.OPERATION_VIEW_TYPE, child.id, viewType, start);
+        return viewType;
     }
 
     /**
-     * Given the relative index for a specific adapter, find the absolute position of the view holder
-     * within the entire list.
+     * Resolve an absolute position for the layout helpers of this package.
      *
-     * @param adapter          source adapter
-     * @param relativePosition relative position for adapter.
-     * @return absolute position
+     * @return owning (leaf) child and relative position, packed as by {@link OffsetIndex#resolve(int)}.
      */
-    private int getAbsolutePosition(AdapterType adapter, int relativePosition) {
-        if (!adapters.contains(adapter) || relativePosition < 0 || relativePosition > adapter.getItemCount()) {
+    long resolvePosition(int position) {
+        return lookupIndex.resolve(position);
+    }
+
+    /**
+     * @param resolved value returned by {@link #resolvePosition(int)}.
+     * @return adapter owning the resolved position.
+     */
+    RecyclerView.Adapter getResolvedAdapter(long resolved) {
+        return lookupChildren.get(OffsetIndex.childIndexOf(resolved)).adapter;
+    }
+
+    /**
+     * @param resolved value returned by {@link #resolvePosition(int)}.
+     * @return whether the resolved position is a header or footer rather than an item.
+     */
+    boolean isResolvedSlot(long resolved) {
+        int childIndex = OffsetIndex.childIndexOf(resolved);
+        int relativePosition = OffsetIndex.relativePositionOf(resolved);
+        return relativePosition < 0 || relativePosition >= lookupIndex.getCount(childIndex);
+    }
+
+    /**
+     * @param adapter child adapter.
+     * @return index of the child adapter within the composite.
+     */
+    private int getChildIndex(AdapterType adapter) {
+        int index = indexOfAdapter(adapter);
+        if (index < 0) {
             throw new IllegalArgumentException("No adapter exists with CompositeAdapter");
         }
-        int absolutePosition = relativePosition;
-        for (int i = 0, size = adapters.size(); i < size; i++) {
-            AdapterType currentAdapter = adapters.get(i);
-            if (currentAdapter.equals(adapter)) {
-                return absolutePosition;
-            } else {
-                absolutePosition += currentAdapter.getItemCount();
-            }
+        return index;
+    }
+
+    private int indexOfAdapter(RecyclerView.Adapter adapter) {
+        for (int i = 0, size = children.size(); i < size; i++) {
+            if (children.get(i).adapter == adapter) return i;
         }
-        throw new IndexOutOfBoundsException("Relative position index doesn't map to an absolute position.");
+        return -1;
+    }
+
+    private void onChildChanged(AdapterType adapter) {
+        int index = getChildIndex(adapter);
+        leafTree.onChildChanged(index, true);
+        updateTranslator.onChildChanged(index, adapter.getItemCount());
+    }
+
+    private void onChildItemRangeChanged(AdapterType adapter, int positionStart, int itemCount, Object payload) {
+        int index = getChildIndex(adapter);
+        leafTree.onChildChanged(index, false);
+        if (itemCount == 0) {
+            // Sent by nested composites whose children changed without any position changing.
+            updateTranslator.onStructureChanged();
+        } else {
+            updateTranslator.onChildItemRangeChanged(index, positionStart, itemCount, payload);
+        }
+    }
+
+    private void onChildItemRangeInserted(AdapterType adapter, int positionStart, int itemCount) {
+        int index = getChildIndex(adapter);
+        leafTree.onChildChanged(index, true);
+        updateTranslator.onChildItemRangeInserted(index, positionStart, itemCount);
+    }
+
+    private void onChildItemRangeRemoved(AdapterType adapter, int positionStart, int itemCount) {
+        int index = getChildIndex(adapter);
+        leafTree.onChildChanged(index, true);
+        updateTranslator.onChildItemRangeRemoved(index, positionStart, itemCount);
+    }
+
+    private void onChildItemRangeMoved(AdapterType adapter, int fromPosition, int toPosition, int itemCount) {
+        int index = getChildIndex(adapter);
+        leafTree.onChildChanged(index, false);
+        updateTranslator.onChildItemRangeMoved(index, fromPosition, toPosition, itemCount);
     }
 
     /**
@@ -140,6 +941,9 @@ public class CompositeAdapter<AdapterType extends RecyclerView.Adapter> extends
      * so that the CompositeAdapter is made aware of overall list changes.
      * <p/>
      * IndexOutOfBounds exceptions will result otherwise.
+     * <p/>
+     * Once the composite has been garbage collected the observer unregisters itself from the child
+     * on its next callback, so dead observers do not pile up on long-lived children.
      */
     private static class AdapterObserver<AdapterType extends RecyclerView.Adapter> extends RecyclerView.AdapterDataObserver {
 
@@ -153,49 +957,333 @@ public class CompositeAdapter<AdapterType extends RecyclerView.Adapter> extends
 
         @Override
         public void onChanged() {
-            compositeRef.get().notifyDataSetChanged();
+            AdapterType child = childRef.get();
+            CompositeAdapter<AdapterType> composite = getComposite(child);
+            if (composite != null) {
+                composite.onChildChanged(child);
+            }
         }
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount) {
-            if (positionStart >= 0) {
-                int absolutePosition = compositeRef.get().getAbsolutePosition(childRef.get(), positionStart);
-                compositeRef.get().notifyItemRangeChanged(absolutePosition, itemCount);
+            onItemRangeChanged(positionStart, itemCount, null);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            AdapterType child = childRef.get();
+            CompositeAdapter<AdapterType> composite = getComposite(child);
+            if (composite != null && positionStart >= 0) {
+                composite.onChildItemRangeChanged(child, positionStart, itemCount, payload);
             }
         }
 
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
-            if (positionStart >= 0) {
-                int absolutePosition = compositeRef.get().getAbsolutePosition(childRef.get(), positionStart);
-                compositeRef.get().notifyItemRangeInserted(absolutePosition, itemCount);
+            AdapterType child = childRef.get();
+            CompositeAdapter<AdapterType> composite = getComposite(child);
+            if (composite != null && positionStart >= 0) {
+                composite.onChildItemRangeInserted(child, positionStart, itemCount);
             }
         }
 
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
-            if (positionStart >= 0) {
-                int absolutePosition = compositeRef.get().getAbsolutePosition(childRef.get(), positionStart);
-                compositeRef.get().notifyItemRangeRemoved(absolutePosition, itemCount);
+            AdapterType child = childRef.get();
+            CompositeAdapter<AdapterType> composite = getComposite(child);
+            if (composite != null && positionStart >= 0) {
+                composite.onChildItemRangeRemoved(child, positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            AdapterType child = childRef.get();
+            CompositeAdapter<AdapterType> composite = getComposite(child);
+            if (composite != null && fromPosition >= 0 && toPosition >= 0) {
+                composite.onChildItemRangeMoved(child, fromPosition, toPosition, itemCount);
             }
         }
+
+        /**
+         * @return composite to forward the child's callback to, or null when the child or the
+         * composite has been garbage collected.
+         */
+        private CompositeAdapter<AdapterType> getComposite(AdapterType child) {
+            if (child == null) return null;
+            CompositeAdapter<AdapterType> composite = compositeRef.get();
+            if (composite == null) {
+                child.unregisterAdapterDataObserver(this);
+            }
+            return composite;
+        }
     }
 
-    private static class AdapterInfo<AdapterType extends RecyclerView.Adapter> {
-        private AdapterType adapter;
-        private int relativeIndex;
+    /**
+     * Creates one warm ViewHolder each time the main thread goes idle.
+     */
+    private static class WarmUpIdleHandler<AdapterType extends RecyclerView.Adapter> implements MessageQueue.IdleHandler {
+
+        private final WeakReference<CompositeAdapter<AdapterType>> compositeRef;
+        private final WeakReference<RecyclerView> recyclerViewRef;
+        private final int viewType;
+        private int remaining;
+
+        private WarmUpIdleHandler(CompositeAdapter<AdapterType> composite, RecyclerView recyclerView, int viewType, int count) {
+            compositeRef = new WeakReference<>(composite);
+            recyclerViewRef = new WeakReference<>(recyclerView);
+            this.viewType = viewType;
+            remaining = count;
+        }
 
-        private AdapterInfo(AdapterType adapter, int relativeIndex) {
+        @Override
+        public boolean queueIdle() {
+            CompositeAdapter<AdapterType> composite = compositeRef.get();
+            RecyclerView recyclerView = recyclerViewRef.get();
+            if (composite == null || recyclerView == null || recyclerView.getAdapter() != composite) return false;
+            // The child has been removed since the warm-up was requested.
+            if (composite.viewTypeTable.getOwner(viewType) == null) return false;
+            composite.putWarmViewHolder(recyclerView, viewType);
+            return --remaining > 0;
+        }
+    }
+
+    /**
+     * Wraps views inflated off the main thread in ViewHolders and moves them into the pool.
+     */
+    private static class WarmUpInflateListener<AdapterType extends RecyclerView.Adapter> implements AsyncLayoutInflater.OnInflateFinishedListener {
+
+        private final WeakReference<CompositeAdapter<AdapterType>> compositeRef;
+        private final int viewType;
+
+        private WarmUpInflateListener(CompositeAdapter<AdapterType> composite, int viewType) {
+            compositeRef = new WeakReference<>(composite);
+            this.viewType = viewType;
+        }
+
+        @Override
+        public void onInflateFinished(View view, int resid, ViewGroup parent) {
+            CompositeAdapter<AdapterType> composite = compositeRef.get();
+            if (composite == null || !(parent instanceof RecyclerView)) return;
+            RecyclerView recyclerView = (RecyclerView) parent;
+            if (recyclerView.getAdapter() != composite) return;
+
+            PreInflatableAdapter adapter = (PreInflatableAdapter) composite.viewTypeTable.getOwner(viewType);
+            // The child has been removed since the warm-up was requested.
+            if (adapter == null) return;
+            RecyclerView.ViewHolder holder = adapter.onCreateViewHolder(view, composite.viewTypeTable.getLocalType(viewType));
+            // RecyclerView only accepts holders it created into its pool, so hand the holder over
+            // through createViewHolder(), which picks it up from warmViewHolders.
+            composite.warmViewHolders.put(viewType, holder);
+            composite.putWarmViewHolder(recyclerView, viewType);
+        }
+    }
+
+    /**
+     * Computes the diffs for a snapshot submission on the background executor, then posts back to
+     * the main thread to apply them.
+     */
+    private static class SnapshotDiffTask<AdapterType extends RecyclerView.Adapter> implements Runnable {
+
+        private final CompositeAdapter<AdapterType> composite;
+        private final List<SnapshotUpdate<AdapterType>> updates;
+        private final int generation;
+        private DiffUtil.DiffResult[] results;
+
+        private SnapshotDiffTask(CompositeAdapter<AdapterType> composite, List<SnapshotUpdate<AdapterType>> updates, int generation) {
+            this.composite = composite;
+            this.updates = updates;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            if (results == null) {
+                DiffUtil.DiffResult[] diffs = new DiffUtil.DiffResult[updates.size()];
+                for (int i = 0; i < diffs.length; i++) {
+                    SnapshotUpdate<AdapterType> update = updates.get(i);
+                    diffs[i] = DiffUtil.calculateDiff(update.createDiffCallback(), update.detectMoves());
+                }
+                results = diffs;
+                composite.mainHandler.post(this);
+            } else {
+                composite.applySnapshots(updates, results, generation);
+            }
+        }
+    }
+
+    /**
+     * Forwards translated notifications to the RecyclerView, refreshing the flattened leaf index
+     * first when children are nested.
+     */
+    private static class Notifier implements UpdateBatch.Callback {
+
+        private final CompositeAdapter<?> adapter;
+
+        private Notifier(CompositeAdapter<?> adapter) {
             this.adapter = adapter;
-            this.relativeIndex = relativeIndex;
         }
 
-        private AdapterType getAdapter() {
-            return adapter;
+        @Override
+        public void onDataSetChanged() {
+            adapter.onIndexChanged();
+            adapter.notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            adapter.onIndexChanged();
+            adapter.notifyItemRangeChanged(positionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            adapter.onIndexChanged();
+            adapter.notifyItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            adapter.onIndexChanged();
+            adapter.notifyItemRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            adapter.onIndexChanged();
+            adapter.notifyItemMoved(fromPosition, toPosition);
+        }
+
+        /**
+         * Passed on as an empty changed range, which RecyclerView ignores and outer composites
+         * take as the cue to refresh their leaves and stable ids.
+         */
+        @Override
+        public void onStructureChanged() {
+            adapter.onIndexChanged();
+            adapter.updateStableIds();
+            adapter.notifyItemRangeChanged(0, 0);
+        }
+    }
+
+    /**
+     * Forwards prefetch ranges and cancellations to the children implementing PrefetchAdapter.
+     */
+    private static class PrefetchTarget implements PrefetchCoordinator.Target<Child> {
+
+        @Override
+        public void onPrefetchRange(Child child, int positionStart, int itemCount) {
+            if (child.adapter instanceof PrefetchAdapter) {
+                ((PrefetchAdapter) child.adapter).onPrefetchRange(positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onPrefetchCancelled(Child child) {
+            if (child.adapter instanceof PrefetchAdapter) {
+                ((PrefetchAdapter) child.adapter).onPrefetchCancelled();
+            }
+        }
+    }
+
+    /**
+     * Forwards attach and detach to the children and registers their observers.
+     */
+    private static class AttachCallback implements AttachTracker.Callback<RecyclerView, Child> {
+
+        private final CompositeAdapter<?> composite;
+
+        private AttachCallback(CompositeAdapter<?> composite) {
+            this.composite = composite;
+        }
+
+        @Override
+        public void onChildAttached(Child child, RecyclerView view) {
+            child.adapter.onAttachedToRecyclerView(view);
+        }
+
+        @Override
+        public void onChildDetached(Child child, RecyclerView view) {
+            child.adapter.onDetachedFromRecyclerView(view);
+        }
+
+        @Override
+        public void startObserving(Child child) {
+            child.adapter.registerAdapterDataObserver(child.observer);
+        }
+
+        @Override
+        public void stopObserving(Child child) {
+            child.adapter.unregisterAdapterDataObserver(child.observer);
+        }
+
+        @Override
+        public void onChildRefreshed(int index, Child child) {
+            // Leaves of a nested composite may have changed even when its total did not.
+            composite.leafTree.onChildChanged(index, true);
+            composite.updateTranslator.onChildRefreshed(index, child.adapter.getItemCount());
+        }
+
+        @Override
+        public int getItemCount(Child child) {
+            return child.adapter.getItemCount();
+        }
+    }
+
+    /**
+     * Creates the records for the leaves of nested composites, which share the nested composite's
+     * slots and get their own id and namespace in this composite.
+     */
+    private static class LeafFactory implements LeafTree.LeafFactory<Child> {
+
+        private final CompositeAdapter<?> composite;
+
+        private LeafFactory(CompositeAdapter<?> composite) {
+            this.composite = composite;
+        }
+
+        @Override
+        public Child createLeaf(Child nestedLeaf) {
+            return new Child(nestedLeaf.adapter, composite.nextChildId++, composite.namespaces.allocate(), null, nestedLeaf.getSlotOwner());
+        }
+
+        @Override
+        public void releaseLeaf(Child leaf) {
+            composite.releaseChild(leaf);
+        }
+    }
+
+    private static class Child {
+        private final RecyclerView.Adapter adapter;
+        private SectionSlot header;
+        private SectionSlot footer;
+        // Never reused within the composite, used to namespace the child's view types.
+        private final int id;
+        // Namespace of the child's item ids; reused once the child has been removed.
+        private final int namespace;
+        // Null for leaves of nested composites, which are observed by their own composite.
+        private final RecyclerView.AdapterDataObserver observer;
+        // Record holding the slots of a nested composite's leaf, or null for direct children.
+        private final Child slotOwner;
+
+        private Child(RecyclerView.Adapter adapter, int id, int namespace, RecyclerView.AdapterDataObserver observer, Child slotOwner) {
+            this.adapter = adapter;
+            this.id = id;
+            this.namespace = namespace;
+            this.observer = observer;
+            this.slotOwner = slotOwner;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(adapter);
         }
 
-        private int getRelativePosition() {
-            return relativeIndex;
+        /**
+         * @return record whose header and footer are shown around this child's items.
+         */
+        private Child getSlotOwner() {
+            return slotOwner != null ? slotOwner : this;
         }
     }
 }
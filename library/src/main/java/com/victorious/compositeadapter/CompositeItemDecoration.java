@@ -0,0 +1,51 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * CompositeItemDecoration forwards item offsets to the child adapter owning each item, so every
+ * section of a CompositeAdapter can space its own items, see {@link ItemOffsetsAdapter}.
+ * <p/>
+ * Usage: recyclerView.addItemDecoration(new CompositeItemDecoration(compositeAdapter));
+ */
+public class CompositeItemDecoration extends RecyclerView.ItemDecoration {
+
+    private final CompositeAdapter<?> compositeAdapter;
+
+    public CompositeItemDecoration(CompositeAdapter<?> compositeAdapter) {
+        this.compositeAdapter = compositeAdapter;
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+        outRect.set(0, 0, 0, 0);
+        int position = parent.getChildAdapterPosition(view);
+        // Views being removed have no adapter position, and the adapter may already be smaller
+        // than the RecyclerView believes while changes are pending.
+        if (position == RecyclerView.NO_POSITION || position >= compositeAdapter.getItemCount()) return;
+        long resolved = compositeAdapter.resolvePosition(position);
+        if (compositeAdapter.isResolvedSlot(resolved)) return;
+        Object adapter = compositeAdapter.getResolvedAdapter(resolved);
+        if (adapter instanceof ItemOffsetsAdapter) {
+            ((ItemOffsetsAdapter) adapter).getItemOffsets(outRect, OffsetIndex.relativePositionOf(resolved), parent);
+        }
+    }
+}
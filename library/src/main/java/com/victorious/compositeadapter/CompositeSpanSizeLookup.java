@@ -0,0 +1,75 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.support.v7.widget.GridLayoutManager;
+
+/**
+ * CompositeSpanSizeLookup lets every child adapter of a CompositeAdapter define its own span sizes
+ * in a GridLayoutManager, see {@link SpanSizeAdapter}.
+ * <p/>
+ * Usage: gridLayoutManager.setSpanSizeLookup(new CompositeSpanSizeLookup(compositeAdapter, gridLayoutManager));
+ * <p/>
+ * Span sizes are resolved through the composite's position index. Span indices and span group
+ * indices, which GridLayoutManager computes by walking every preceding position, are cached per
+ * position unless the span index cache is disabled; GridLayoutManager invalidates the cache on
+ * every adapter change.
+ */
+public class CompositeSpanSizeLookup extends GridLayoutManager.SpanSizeLookup implements SpanIndexCache.SpanSizeSource {
+
+    private final CompositeAdapter<?> compositeAdapter;
+    private final GridLayoutManager layoutManager;
+    private final SpanIndexCache spanIndexCache;
+
+    public CompositeSpanSizeLookup(CompositeAdapter<?> compositeAdapter, GridLayoutManager layoutManager) {
+        this.compositeAdapter = compositeAdapter;
+        this.layoutManager = layoutManager;
+        spanIndexCache = new SpanIndexCache();
+        setSpanIndexCacheEnabled(true);
+    }
+
+    @Override
+    public int getSpanSize(int position) {
+        int spanCount = layoutManager.getSpanCount();
+        long resolved = compositeAdapter.resolvePosition(position);
+        // Headers and footers always take a full row.
+        if (compositeAdapter.isResolvedSlot(resolved)) return spanCount;
+        Object adapter = compositeAdapter.getResolvedAdapter(resolved);
+        if (adapter instanceof SpanSizeAdapter) {
+            return ((SpanSizeAdapter) adapter).getSpanSize(OffsetIndex.relativePositionOf(resolved), spanCount);
+        }
+        return spanCount;
+    }
+
+    @Override
+    public int getSpanIndex(int position, int spanCount) {
+        if (!isSpanIndexCacheEnabled()) return super.getSpanIndex(position, spanCount);
+        return spanIndexCache.getSpanIndex(position, spanCount, this);
+    }
+
+    @Override
+    public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+        if (!isSpanIndexCacheEnabled()) return super.getSpanGroupIndex(adapterPosition, spanCount);
+        return spanIndexCache.getSpanGroupIndex(adapterPosition, spanCount, this);
+    }
+
+    @Override
+    public void invalidateSpanIndexCache() {
+        super.invalidateSpanIndexCache();
+        spanIndexCache.invalidate();
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Optional interface for child adapters which want to decorate their own items.
+ * {@link CompositeItemDecoration} forwards the offsets of each item to the child owning it.
+ */
+public interface ItemOffsetsAdapter {
+
+    /**
+     * See RecyclerView.ItemDecoration.getItemOffsets().
+     *
+     * @param outRect  offsets to fill in, zeroed beforehand.
+     * @param position position relative to the child adapter.
+     * @param parent   RecyclerView showing the composite.
+     */
+    void getItemOffsets(Rect outRect, int position, RecyclerView parent);
+}
@@ -0,0 +1,225 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+
+import java.util.List;
+
+/**
+ * PagedAdapter is a child adapter which does not hold its whole list in memory. It reports an
+ * estimated (or, once known, exact) item count and fetches pages of items from a
+ * {@link PageLoader} only when positions near them are bound.
+ * <p/>
+ * Usage: subclass it like a normal RecyclerView.Adapter, implementing
+ * {@link #onBindItem(RecyclerView.ViewHolder, int, Object)} to bind either an item or, while
+ * its page is loading, a placeholder (item == null). Add it to a CompositeAdapter as usual.
+ * <p/>
+ * Inside a CompositeAdapter, binding the last rows of the section above (or the first rows of the
+ * section below) also counts as nearby, so the first page is already loading by the time the
+ * section scrolls into view. Pages further than {@code retainDistance} pages from the last bound
+ * page are released and reloaded if they are needed again; results of requests still in flight for
+ * them are discarded.
+ * <p/>
+ * Count changes and loaded pages are reported through the regular notify* methods and therefore
+ * flow through the composite's AdapterObserver. Must only be used from the main thread.
+ *
+ * @param <ItemType>       type of the items.
+ * @param <ViewHolderType> type of the view holders.
+ */
+public abstract class PagedAdapter<ItemType, ViewHolderType extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<ViewHolderType> {
+
+    /**
+     * Loads one page of items. The callback may be invoked synchronously or later, from any
+     * thread; results are applied on the main thread after the current layout pass, so a loader
+     * completing from within onBindViewHolder() does not notify during layout.
+     */
+    public interface PageLoader<ItemType> {
+
+        void loadPage(int pageIndex, int pageSize, PageCallback<ItemType> callback);
+    }
+
+    public interface PageCallback<ItemType> {
+
+        /**
+         * @param items          items of the page; fewer than the page size marks the end of the list.
+         * @param totalItemCount total number of items if known, or {@link #UNKNOWN_COUNT}.
+         */
+        void onPageLoaded(List<ItemType> items, int totalItemCount);
+
+        void onPageFailed();
+    }
+
+    public static final int UNKNOWN_COUNT = -1;
+
+    private final PageLoader<ItemType> loader;
+    private final PageTracker tracker;
+    private final SparseArray<List<ItemType>> pages;
+    private final PageTracker.Releaser releaser;
+    private final Handler mainHandler;
+
+    /**
+     * @param loader             source of the pages.
+     * @param pageSize           number of items per page.
+     * @param estimatedItemCount item count reported until the loader reports the real one.
+     * @param prefetchDistance   number of items around a bound position whose pages are loaded.
+     * @param retainDistance     number of pages around the last bound page kept in memory, at least
+     *                           as many as the prefetch distance spans.
+     */
+    protected PagedAdapter(PageLoader<ItemType> loader, int pageSize, int estimatedItemCount, int prefetchDistance, int retainDistance) {
+        tracker = new PageTracker(pageSize, prefetchDistance, retainDistance, estimatedItemCount);
+        this.loader = loader;
+        pages = new SparseArray<>();
+        releaser = new PageReleaser();
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Bind the item at the position, or a placeholder when the item's page is not loaded yet.
+     *
+     * @param item item at the position, or null while its page is loading.
+     */
+    public abstract void onBindItem(ViewHolderType holder, int position, ItemType item);
+
+    @Override
+    public final void onBindViewHolder(ViewHolderType holder, int position) {
+        onPositionBound(position);
+        onBindItem(holder, position, getItem(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return tracker.getItemCount();
+    }
+
+    /**
+     * @return item at the position, or null when its page is not loaded.
+     */
+    public ItemType getItem(int position) {
+        List<ItemType> page = pages.get(tracker.getPageIndex(position));
+        int index = position % tracker.getPageSize();
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+
+    /**
+     * @return whether the page containing the position is in memory.
+     */
+    public boolean isLoaded(int position) {
+        return tracker.isLoaded(tracker.getPageIndex(position));
+    }
+
+    /**
+     * Drop every page and reload from the loader as positions are bound again.
+     *
+     * @param estimatedItemCount item count reported until the loader reports the real one.
+     */
+    public void invalidate(int estimatedItemCount) {
+        tracker.reset(estimatedItemCount);
+        pages.clear();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Called by CompositeAdapter when a position of a neighbouring child is bound.
+     *
+     * @param relativePosition bound position relative to this adapter: negative when above it, at
+     *                         least getItemCount() when below it.
+     */
+    void onNearbyPositionBound(int relativePosition) {
+        int pageIndex = tracker.getNearbyPage(relativePosition);
+        if (pageIndex >= 0) {
+            requestPage(pageIndex);
+        }
+    }
+
+    private void onPositionBound(int position) {
+        for (int page = tracker.getFirstPageAround(position), lastPage = tracker.getLastPageAround(position); page <= lastPage; page++) {
+            requestPage(page);
+        }
+        tracker.onPositionBound(position, releaser);
+    }
+
+    private void requestPage(int pageIndex) {
+        int token = tracker.request(pageIndex);
+        if (token != PageTracker.NO_REQUEST) {
+            loader.loadPage(pageIndex, tracker.getPageSize(), new PageRequest(pageIndex, token));
+        }
+    }
+
+    private void onPageLoaded(int pageIndex, List<ItemType> items, int totalItemCount) {
+        pages.put(pageIndex, items);
+        int oldItemCount = tracker.getItemCount();
+        int newItemCount = tracker.onPageCounted(pageIndex, items.size(), totalItemCount);
+        if (newItemCount > oldItemCount) {
+            notifyItemRangeInserted(oldItemCount, newItemCount - oldItemCount);
+        } else if (newItemCount < oldItemCount) {
+            notifyItemRangeRemoved(newItemCount, oldItemCount - newItemCount);
+        }
+
+        // Placeholders which already existed before this page arrived need rebinding.
+        int changedCount = tracker.getPlaceholderCount(pageIndex, items.size(), oldItemCount);
+        if (changedCount > 0) {
+            notifyItemRangeChanged(pageIndex * tracker.getPageSize(), changedCount);
+        }
+    }
+
+    private class PageReleaser implements PageTracker.Releaser {
+
+        @Override
+        public void releasePage(int pageIndex) {
+            pages.remove(pageIndex);
+        }
+    }
+
+    private class PageRequest implements PageCallback<ItemType>, Runnable {
+
+        private final int pageIndex;
+        private final int token;
+        private List<ItemType> items;
+        private int totalItemCount;
+
+        private PageRequest(int pageIndex, int token) {
+            this.pageIndex = pageIndex;
+            this.token = token;
+        }
+
+        @Override
+        public void onPageLoaded(List<ItemType> items, int totalItemCount) {
+            this.items = items;
+            this.totalItemCount = totalItemCount;
+            mainHandler.post(this);
+        }
+
+        @Override
+        public void onPageFailed() {
+            mainHandler.post(this);
+        }
+
+        @Override
+        public void run() {
+            if (items == null) {
+                // Allow the page to be requested again the next time a nearby position is bound.
+                tracker.onPageFailed(pageIndex, token);
+            } else if (tracker.onPageLoaded(pageIndex, token)) {
+                PagedAdapter.this.onPageLoaded(pageIndex, items, totalItemCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Optional interface for child adapters whose item layouts are safe to inflate off the main thread
+ * (no custom views requiring a Looper, no fragments). CompositeAdapter.warmUp() then inflates them
+ * with AsyncLayoutInflater instead of calling onCreateViewHolder() on the main thread.
+ */
+public interface PreInflatableAdapter {
+
+    /**
+     * @param viewType view type as returned by the child adapter's getItemViewType().
+     * @return layout resource to inflate for the view type, or 0 when it must be created on the
+     * main thread through onCreateViewHolder().
+     */
+    int getItemLayoutResource(int viewType);
+
+    /**
+     * Wrap an inflated item view in a ViewHolder, the equivalent of onCreateViewHolder() once the
+     * view has been inflated.
+     *
+     * @param itemView view inflated from {@link #getItemLayoutResource(int)}.
+     * @param viewType view type as returned by the child adapter's getItemViewType().
+     */
+    RecyclerView.ViewHolder onCreateViewHolder(View itemView, int viewType);
+}
@@ -0,0 +1,40 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+/**
+ * Optional interface for child adapters which load data or images for their rows ahead of
+ * binding. CompositeAdapter tells each such child which of its positions are visible or about to
+ * scroll into view, see CompositeAdapter.setPrefetchRange(). Called on the main thread.
+ */
+public interface PrefetchAdapter {
+
+    /**
+     * Replaces the previous prefetch range of this adapter; work for positions outside it may be
+     * dropped.
+     *
+     * @param positionStart first position, relative to this adapter.
+     * @param itemCount     number of positions.
+     */
+    void onPrefetchRange(int positionStart, int itemCount);
+
+    /**
+     * None of this adapter's positions are visible or upcoming anymore, e.g. because the user
+     * flung past it; pending prefetch work should be cancelled.
+     */
+    void onPrefetchCancelled();
+}
@@ -0,0 +1,61 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * PrefetchScrollListener feeds the visible range of a LinearLayoutManager (or GridLayoutManager),
+ * extended by a number of positions in the scroll direction, to
+ * CompositeAdapter.setPrefetchRange() on every scroll.
+ * <p/>
+ * Usage: recyclerView.addOnScrollListener(new PrefetchScrollListener(compositeAdapter, layoutManager, 10));
+ */
+public class PrefetchScrollListener extends RecyclerView.OnScrollListener {
+
+    private final CompositeAdapter<?> compositeAdapter;
+    private final LinearLayoutManager layoutManager;
+    private final int prefetchDistance;
+
+    /**
+     * @param prefetchDistance number of positions beyond the visible ones, in the scroll direction,
+     *                         which are prefetched.
+     */
+    public PrefetchScrollListener(CompositeAdapter<?> compositeAdapter, LinearLayoutManager layoutManager, int prefetchDistance) {
+        if (prefetchDistance < 0) {
+            throw new IllegalArgumentException("prefetchDistance must not be negative.");
+        }
+        this.compositeAdapter = compositeAdapter;
+        this.layoutManager = layoutManager;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) return;
+        int delta = layoutManager.getOrientation() == LinearLayoutManager.VERTICAL ? dy : dx;
+        if (delta > 0) {
+            last += prefetchDistance;
+        } else if (delta < 0) {
+            first -= prefetchDistance;
+        }
+        compositeAdapter.setPrefetchRange(first, last - first + 1);
+    }
+}
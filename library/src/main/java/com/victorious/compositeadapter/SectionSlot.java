@@ -0,0 +1,44 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+/**
+ * Header or footer shown around the items of one child of a CompositeAdapter, see
+ * {@link CompositeAdapter#setHeader(RecyclerView.Adapter, SectionSlot)}.
+ * <p/>
+ * A slot takes a position of the composite but is not an item of the child, so the child's own
+ * positions and notifications are unaffected. Slots of the same class reporting the same view type
+ * share their ViewHolders, so one instance, or several instances of one class, can serve as the
+ * headers of many sections. Slots of different classes never share ViewHolders.
+ */
+public interface SectionSlot {
+
+    /**
+     * @return view type of the slot, within the view type space of the slot's class.
+     */
+    int getViewType();
+
+    RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent);
+
+    /**
+     * @param section child adapter the slot belongs to.
+     */
+    void onBindViewHolder(RecyclerView.ViewHolder holder, RecyclerView.Adapter section);
+}
@@ -0,0 +1,66 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * SnapshotUpdate describes the replacement of one child adapter's data as part of
+ * {@link CompositeAdapter#submitSnapshots(java.util.List, java.util.concurrent.Executor)}.
+ * <p/>
+ * Usage: capture the child's current data and the new data when creating the update. The diff
+ * callback is created and run on the background executor, so it must only read those captured
+ * lists. Once every diff is done, {@link #applyData()} is called on the main thread to swap the new
+ * data into the child, immediately followed by the child's diff notifications.
+ * <p/>
+ * The child's data must not be modified between submitting the update and it being applied.
+ *
+ * @param <AdapterType> type of the child adapter.
+ */
+public abstract class SnapshotUpdate<AdapterType extends RecyclerView.Adapter> {
+
+    private final AdapterType adapter;
+
+    protected SnapshotUpdate(AdapterType adapter) {
+        this.adapter = adapter;
+    }
+
+    public AdapterType getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * Called on a background thread.
+     *
+     * @return DiffUtil callback comparing the child's current data against the new data.
+     */
+    protected abstract DiffUtil.Callback createDiffCallback();
+
+    /**
+     * Called on the main thread right before the diff is dispatched to the child; replace the
+     * child's data with the new data here without notifying.
+     */
+    protected abstract void applyData();
+
+    /**
+     * @return whether DiffUtil should look for moved items.
+     */
+    protected boolean detectMoves() {
+        return true;
+    }
+}
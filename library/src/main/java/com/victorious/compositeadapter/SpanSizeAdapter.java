@@ -0,0 +1,32 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+/**
+ * Optional interface for child adapters shown in a grid. {@link CompositeSpanSizeLookup} asks the
+ * child owning a position for its span size; children not implementing it take a full row per
+ * item, as they would in a vertical list.
+ */
+public interface SpanSizeAdapter {
+
+    /**
+     * @param position  position relative to the child adapter.
+     * @param spanCount number of spans of the grid.
+     * @return number of spans the item occupies, between 1 and spanCount.
+     */
+    int getSpanSize(int position, int spanCount);
+}
@@ -0,0 +1,146 @@
+/**
+ *  Copyright 2017 Victorious,Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.victorious.compositeadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * ViewPoolManager sizes the RecycledViewPool shared by all children of a CompositeAdapter from how
+ * often each view type is actually created and bound.
+ * <p/>
+ * RecyclerView keeps at most 5 recycled holders per view type by default. In a composite that is
+ * too few for view types filling most of the screen, which then get inflated over and over, and
+ * too many for types that appear once. The manager splits a total budget between the view types
+ * in use in proportion to their share of binds, within [minPerType, maxPerType]; view types of
+ * removed children no longer count.
+ * <p/>
+ * Usage: create it with the pool of your RecyclerView and pass it to
+ * CompositeAdapter.setViewPoolManager(). The pool is resized every {@code resizeInterval} binds,
+ * or on demand via {@link #resizePool()}. The create and bind counters are exposed so the effect
+ * on inflations can be verified.
+ * <p/>
+ * Must only be used from the main thread.
+ */
+public class ViewPoolManager {
+
+    public static final int DEFAULT_MIN_PER_TYPE = 2;
+    public static final int DEFAULT_MAX_PER_TYPE = 20;
+    public static final int DEFAULT_BUDGET_PER_TYPE = 5;
+    public static final int DEFAULT_RESIZE_INTERVAL = 256;
+
+    private final ViewPoolSizer.Pool pool;
+    private final ViewPoolSizer sizer;
+    private final int resizeInterval;
+    private int bindsSinceResize;
+
+    public ViewPoolManager(RecyclerView.RecycledViewPool pool) {
+        this(pool, DEFAULT_MIN_PER_TYPE, DEFAULT_MAX_PER_TYPE, DEFAULT_BUDGET_PER_TYPE, DEFAULT_RESIZE_INTERVAL);
+    }
+
+    /**
+     * @param pool           pool shared by the composite's RecyclerView.
+     * @param minPerType     smallest pool size given to any view type in use.
+     * @param maxPerType     largest pool size given to any view type.
+     * @param budgetPerType  average pool size per view type; the total budget is this times the
+     *                       number of view types in use.
+     * @param resizeInterval number of binds between automatic resizes.
+     */
+    public ViewPoolManager(RecyclerView.RecycledViewPool pool, int minPerType, int maxPerType, int budgetPerType, int resizeInterval) {
+        if (resizeInterval <= 0) {
+            throw new IllegalArgumentException("Invalid pool sizing parameters.");
+        }
+        this.pool = new RecycledPool(pool);
+        this.resizeInterval = resizeInterval;
+        sizer = new ViewPoolSizer(minPerType, maxPerType, budgetPerType);
+    }
+
+    /**
+     * @return number of ViewHolders created for the view type since the last reset.
+     */
+    public int getCreateCount(int viewType) {
+        return sizer.getCreateCount(viewType);
+    }
+
+    /**
+     * @return number of binds of the view type since the last reset.
+     */
+    public int getBindCount(int viewType) {
+        return sizer.getBindCount(viewType);
+    }
+
+    /**
+     * @return pool size last applied to the view type, or 0 when not resized yet.
+     */
+    public int getMaxRecycledViews(int viewType) {
+        return sizer.getMaxRecycledViews(viewType);
+    }
+
+    /**
+     * @return total number of ViewHolders created since the last reset.
+     */
+    public int getTotalCreateCount() {
+        return sizer.getTotalCreateCount();
+    }
+
+    /**
+     * Clear the create and bind counters. Pool sizes already applied are kept.
+     */
+    public void resetCounters() {
+        sizer.resetCounters();
+        bindsSinceResize = 0;
+    }
+
+    /**
+     * Split the budget between the view types in use and apply it to the pool.
+     */
+    public void resizePool() {
+        bindsSinceResize = 0;
+        sizer.resize(pool);
+    }
+
+    void onViewHolderCreated(int viewType) {
+        sizer.onCreated(viewType);
+    }
+
+    void onViewHolderBound(int viewType) {
+        sizer.onBound(viewType);
+        if (++bindsSinceResize >= resizeInterval) {
+            resizePool();
+        }
+    }
+
+    /**
+     * Called by CompositeAdapter for the view types of a removed child.
+     */
+    void onViewTypeReleased(int viewType) {
+        sizer.release(viewType, pool);
+    }
+
+    private static class RecycledPool implements ViewPoolSizer.Pool {
+
+        private final RecyclerView.RecycledViewPool pool;
+
+        private RecycledPool(RecyclerView.RecycledViewPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void setMaxRecycledViews(int viewType, int max) {
+            pool.setMaxRecycledViews(viewType, max);
+        }
+    }
+}